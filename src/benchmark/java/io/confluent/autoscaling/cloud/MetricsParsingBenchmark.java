@@ -0,0 +1,55 @@
+package io.confluent.autoscaling.cloud;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the Telemetry API responses: the incremental query returns a couple of buckets,
+ * the initial query up to a day of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsParsingBenchmark {
+
+    private static final long START = Instant.parse("2022-04-21T00:00:00Z").toEpochMilli();
+
+    @Param({"2", "60", "1440"})
+    private int buckets;
+
+    private String response;
+    private MetricWindow window;
+
+    @Setup
+    public void setup() {
+        response = response(buckets, START);
+        window = new MetricWindow(15, "PT1M");
+    }
+
+    @Benchmark
+    public MetricWindow parse() throws IOException {
+        MetricsHandler.parse(new StringReader(response), window);
+        return window;
+    }
+
+    /**
+     * A response of the Telemetry API with a bucket a minute starting at the given time.
+     */
+    public static String response(int buckets, long start) {
+        final var builder = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < buckets; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(start + i * 60_000L))
+                    .append("\",\"value\":").append(2.5E9 + (i % 17) * 1.3E8).append('}');
+        }
+        return builder.append("],\"meta\":{\"pagination\":{\"page_size\":").append(Math.max(100, buckets))
+                .append("}}}").toString();
+    }
+}
@@ -0,0 +1,30 @@
+package io.confluent.autoscaling.cloud;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the bucket timestamps of the Telemetry API responses against {@link Instant#parse}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimestampParsingBenchmark {
+
+    private String timestamp = "2022-04-21T15:10:00Z";
+
+    @Benchmark
+    public long parseTimestamp() {
+        return MetricsHandler.parseTimestamp(timestamp);
+    }
+
+    @Benchmark
+    public long instantParse() {
+        return Instant.parse(timestamp).toEpochMilli();
+    }
+}
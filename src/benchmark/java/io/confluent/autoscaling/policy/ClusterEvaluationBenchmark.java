@@ -0,0 +1,84 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.CKULimits;
+import io.confluent.autoscaling.cloud.MetricWindow;
+import io.confluent.autoscaling.cloud.MetricsHandler;
+import io.confluent.autoscaling.cloud.MetricsParsingBenchmark;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A poll of the whole fleet without the network: every cluster parses the incremental responses of its metrics
+ * into the windows and is evaluated by the policy with the forecast enabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ClusterEvaluationBenchmark {
+
+    private static final long START = Instant.parse("2022-04-21T00:00:00Z").toEpochMilli();
+    private static final List<String> METRICS = List.of(CKULimits.RECEIVED_BYTES, CKULimits.CONNECTION_COUNT,
+            CKULimits.CLUSTER_LOAD_PERCENT);
+
+    @Param({"1", "10", "100", "1000"})
+    private int clusters;
+
+    private final ScalingPolicy policy = new ScalingPolicy(METRICS, "PT1M")
+            .thresholds(20, 50, 35)
+            .size(1, 8, 2)
+            .evaluationPeriods(3)
+            .forecast(true, 15, 1_800_000);
+    private final Evaluation evaluation = new Evaluation(policy);
+    private final ScalingState state = new ScalingState();
+    private MetricWindow[][] windows;
+    private Aggregator[][] aggregators;
+    private String[] responses;
+    private long now;
+
+    @Setup
+    public void setup() throws IOException {
+        windows = new MetricWindow[clusters][METRICS.size()];
+        aggregators = new Aggregator[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            aggregators[c] = policy.newAggregators();
+            for (int m = 0; m < METRICS.size(); m++) {
+                windows[c][m] = new MetricWindow(policy.windowCapacity(), "PT1M");
+                MetricsHandler.parse(new StringReader(MetricsParsingBenchmark.response(15, START)), windows[c][m]);
+            }
+        }
+        // the latest closed and the open bucket
+        responses = new String[METRICS.size()];
+        for (int m = 0; m < METRICS.size(); m++) {
+            responses[m] = MetricsParsingBenchmark.response(2, START + 14 * 60_000L);
+        }
+        now = START + 16 * 60_000L;
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        for (int c = 0; c < clusters; c++) {
+            policy.evaluate(1 + c % 4, windows[c], aggregators[c], state, now, evaluation);
+            blackhole.consume(evaluation.targetCKU());
+        }
+    }
+
+    @Benchmark
+    public void parseAndEvaluate(Blackhole blackhole) throws IOException {
+        for (int c = 0; c < clusters; c++) {
+            for (int m = 0; m < METRICS.size(); m++) {
+                MetricsHandler.parse(new StringReader(responses[m]), windows[c][m]);
+            }
+            policy.evaluate(1 + c % 4, windows[c], aggregators[c], state, now, evaluation);
+            blackhole.consume(evaluation.targetCKU());
+        }
+    }
+}
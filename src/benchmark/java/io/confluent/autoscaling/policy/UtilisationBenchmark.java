@@ -0,0 +1,64 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.CKULimits;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the metric samples to the utilisation in percent: resolving the limit of the metric in the registry
+ * and the bucket for every sample against the limits precomputed by the policy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UtilisationBenchmark {
+
+    private static final List<String> METRICS = List.of(CKULimits.RECEIVED_BYTES, CKULimits.SENT_BYTES,
+            CKULimits.REQUEST_COUNT, CKULimits.CONNECTION_COUNT, CKULimits.CLUSTER_LOAD_PERCENT);
+    private static final int SAMPLES = 1024;
+
+    private final CKULimits limits = CKULimits.defaults();
+    private final ScalingPolicy policy = new ScalingPolicy(METRICS, "PT1M", limits);
+    private final double[] values = new double[SAMPLES];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SAMPLES; i++) values[i] = 1.0E9 + i * 1.7E6;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long perSampleLimit() {
+        var sum = 0L;
+        for (int i = 0; i < SAMPLES; i++) {
+            final var metric = METRICS.get(i % 4);
+            sum += ScalingPolicy.asPercent(2, (long) values[i], limits.limit(metric).bucketLimit("PT1M"));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long precomputedLimit() {
+        var sum = 0L;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += policy.utilisation(i % 4, 2, values[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double bucketLimit() {
+        return limits.limit(CKULimits.RECEIVED_BYTES).bucketLimit("PT1M");
+    }
+
+    @Benchmark
+    public long asPercent() {
+        return ScalingPolicy.asPercent(2, (long) values[0], CKULimits.RECEIVED_BYTES_LIMIT * 60L);
+    }
+}
@@ -0,0 +1,118 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The calls of the handlers enqueued to the dispatcher of the client, so no thread waits for the responses.
+ * The response is read on the dispatcher thread and cancelling the returned future cancels the call.
+ * The retries are backed off on a timer instead of the dispatcher thread.
+ */
+public final class AsyncCall {
+
+    private static final String IO_ERR = "Failed %s request to %s";
+    private static final ScheduledExecutorService RETRIES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "auto-scaling-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    interface ResponseReader<T> {
+        T read(Response response) throws IOException, RequestException;
+    }
+
+    private AsyncCall() {
+    }
+
+    static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, ResponseReader<T> reader) {
+        final var future = new CompletableFuture<T>();
+        final var call = new AtomicReference<Call>();
+        attempt(client, request, reader, future, call, 0);
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) call.get().cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Enqueues an attempt of the call. The attempts the retry interceptor backs off are enqueued again
+     * after the backoff unless the future is done by then, e.g. cancelled.
+     */
+    private static <T> void attempt(OkHttpClient client, Request request, ResponseReader<T> reader,
+                                    CompletableFuture<T> future, AtomicReference<Call> call, int attempt) {
+        if (future.isDone()) return;
+        final var deferred = new RetryInterceptor.Deferred(attempt);
+        final var next = client.newCall(request.newBuilder().tag(RetryInterceptor.Deferred.class, deferred).build());
+        call.set(next);
+        if (future.isCancelled()) return; // cancelled while the call was replaced
+
+        next.enqueue(new Callback() {
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                if (deferred.delayMs >= 0) {
+                    response.close();
+                    retry(deferred.delayMs);
+                    return;
+                }
+                try (response) {
+                    future.complete(reader.read(response));
+                } catch (IOException e) {
+                    future.completeExceptionally(ioFailure(request, e));
+                } catch (RequestException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (deferred.delayMs >= 0 && !call.isCanceled()) {
+                    retry(deferred.delayMs);
+                } else {
+                    future.completeExceptionally(ioFailure(request, e));
+                }
+            }
+
+            private void retry(long delayMs) {
+                try {
+                    RETRIES.schedule(() -> attempt(client, request, reader, future, call, attempt + 1),
+                            delayMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(new RequestException("The retry has been rejected", e));
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for a response and unwraps the failure cause.
+     *
+     * @throws RequestException if the call failed or was cancelled
+     */
+    public static <T> T await(CompletableFuture<T> response) throws RequestException {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            throw failure(e);
+        } catch (CancellationException e) {
+            throw new RequestException("The request has been cancelled", e);
+        }
+    }
+
+    /**
+     * The cause of a failed future as a request failure.
+     */
+    public static RequestException failure(Throwable error) {
+        final var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RequestException) return (RequestException) cause;
+        return new RequestException("The request has failed", cause);
+    }
+
+    private static RequestException ioFailure(Request request, IOException e) {
+        return new RequestException(String.format(IO_ERR, request.method(), request.url()), e);
+    }
+}
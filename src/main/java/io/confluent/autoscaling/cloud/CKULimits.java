@@ -1,7 +1,19 @@
 package io.confluent.autoscaling.cloud;
 
+import java.util.*;
+
 /**
  * Cluster Limits of 1 CKU
+ * <p>
+ * The registry of the limits of the metrics. The defaults are the documented limits, which can be overridden
+ * and extended with new metrics by the settings, also per cloud, region and availability of a cluster:
+ * <pre>
+ * partition_count=4500                      the limit of 1 CKU, per second for the rates
+ * partition_count.aws.*.multi_zone=4000     the limit of the clusters matching cloud.region.availability
+ * retained_bytes.kind=gauge                 rate (default), gauge or load_fraction, for the new metrics
+ * retained_bytes.hard=true                  never scale in below the capacity for the metric
+ * </pre>
+ * The most specific matching cloud, region and availability wins, `*` matches any.
  */
 public class CKULimits {
 
@@ -17,5 +29,134 @@ public class CKULimits {
     public static final String CONNECTION_COUNT = "active_connection_count";
     public static final int CONNECTION_COUNT_LIMIT = 9000;
 
+    public static final String PARTITION_COUNT = "partition_count";
+    public static final int PARTITION_COUNT_LIMIT = 4500;
+
+    public static final String AUTHENTICATION_COUNT = "successful_authentication_count";
+    public static final int AUTHENTICATION_COUNT_LIMIT = 250;
+
+    public static final String RETAINED_BYTES = "retained_bytes";
+
     public static final String CLUSTER_LOAD_PERCENT = "cluster_load_percent";
+
+    private static final String ANY = "*";
+    private static final String KIND = "kind";
+    private static final String HARD = "hard";
+
+    private final Map<String, MetricLimit> limits = new LinkedHashMap<>();
+
+    /**
+     * The documented limits. The storage of Dedicated clusters is unlimited.
+     */
+    public static CKULimits defaults() {
+        return new CKULimits()
+                .register(new MetricLimit(RECEIVED_BYTES, MetricLimit.Kind.RATE, RECEIVED_BYTES_LIMIT, false))
+                .register(new MetricLimit(SENT_BYTES, MetricLimit.Kind.RATE, SENT_BYTES_LIMIT, false))
+                .register(new MetricLimit(REQUEST_COUNT, MetricLimit.Kind.RATE, REQUEST_COUNT_LIMIT, false))
+                .register(new MetricLimit(CONNECTION_COUNT, MetricLimit.Kind.GAUGE, CONNECTION_COUNT_LIMIT, false))
+                .register(new MetricLimit(PARTITION_COUNT, MetricLimit.Kind.GAUGE, PARTITION_COUNT_LIMIT, true))
+                .register(new MetricLimit(AUTHENTICATION_COUNT, MetricLimit.Kind.RATE, AUTHENTICATION_COUNT_LIMIT, true))
+                .register(new MetricLimit(RETAINED_BYTES, MetricLimit.Kind.GAUGE, MetricLimit.UNLIMITED, false))
+                .register(new MetricLimit(CLUSTER_LOAD_PERCENT, MetricLimit.Kind.LOAD_FRACTION, 0, false));
+    }
+
+    public CKULimits register(MetricLimit limit) {
+        limits.put(limit.metric(), limit);
+        return this;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the metric has no limit
+     */
+    public MetricLimit limit(String metric) {
+        final var limit = limits.get(metric);
+        if (limit == null) throw new UnsupportedOperationException("Metric [" + metric + "] is not supported.");
+        return limit;
+    }
+
+    public Collection<MetricLimit> limits() {
+        return Collections.unmodifiableCollection(limits.values());
+    }
+
+    /**
+     * The limits overridden by the settings for a cluster, see the class description for the format.
+     *
+     * @param cloud        the cloud of the cluster, e.g. AWS, or null if unknown
+     * @param region       the region of the cluster, e.g. eu-west-2, or null if unknown
+     * @param availability the availability of the cluster, e.g. SINGLE_ZONE, or null if unknown
+     * @throws IllegalArgumentException if a setting is not valid
+     */
+    public CKULimits configure(Map<String, String> settings, String cloud, String region, String availability) {
+        final var result = new CKULimits();
+        limits.values().forEach(result::register);
+
+        final var metrics = new TreeMap<String, Map<String, String>>();
+        settings.forEach((key, value) -> {
+            final var separator = key.indexOf('.');
+            final var metric = separator < 0 ? key : key.substring(0, separator);
+            metrics.computeIfAbsent(metric, m -> new HashMap<>()).put(separator < 0 ? "" : key.substring(separator + 1),
+                    value.trim());
+        });
+
+        metrics.forEach((metric, values) -> {
+            var limit = result.limits.get(metric);
+            if (limit == null || values.containsKey(KIND) || values.containsKey(HARD)) {
+                final var kind = values.containsKey(KIND) ? kind(metric, values.get(KIND))
+                        : limit != null ? limit.kind() : MetricLimit.Kind.RATE;
+                final var hard = values.containsKey(HARD) ? Boolean.parseBoolean(values.get(HARD))
+                        : limit != null && limit.isHard();
+                limit = new MetricLimit(metric, kind, limit != null ? limit.limit() : MetricLimit.UNLIMITED, hard);
+            }
+            if (values.containsKey("")) limit = limit.withLimit(number(metric, values.get("")));
+
+            var specificity = -1;
+            for (var entry : new TreeMap<>(values).entrySet()) {
+                final var selector = entry.getKey().split("\\.");
+                if (selector.length != 3) {
+                    if (!entry.getKey().isEmpty() && !KIND.equals(entry.getKey()) && !HARD.equals(entry.getKey())) {
+                        throw new IllegalArgumentException("The limit setting [" + metric + "." + entry.getKey()
+                                + "] is not supported.");
+                    }
+                    continue;
+                }
+                final var value = number(metric, entry.getValue());
+                final var matched = matches(selector[0], cloud) + matches(selector[1], region)
+                        + matches(selector[2], availability);
+                if (matched > specificity) {
+                    specificity = matched;
+                    limit = limit.withLimit(value);
+                }
+            }
+            result.register(limit);
+        });
+        return result;
+    }
+
+    /**
+     * @return 1 if the value matches exactly, 0 if the selector matches any, or a large negative number if
+     * the value does not match
+     */
+    private static int matches(String selector, String value) {
+        if (ANY.equals(selector)) return 0;
+        return selector.equalsIgnoreCase(value) ? 1 : -100;
+    }
+
+    private static MetricLimit.Kind kind(String metric, String kind) {
+        try {
+            return MetricLimit.Kind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The kind [" + kind + "] of [" + metric + "] is not supported.");
+        }
+    }
+
+    private static double number(String metric, String value) {
+        final double limit;
+        try {
+            limit = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The limit [" + value + "] of [" + metric + "] is not a number.");
+        }
+        if (limit < 0) throw new IllegalArgumentException("The limit of [" + metric + "] must be non-negative.");
+        return limit;
+    }
 }
@@ -0,0 +1,54 @@
+package io.confluent.autoscaling.cloud;
+
+/**
+ * Stops calling an endpoint after a number of consecutive failures and lets a single trial call through
+ * once the open period is over. The breaker closes again when the trial call succeeds.
+ */
+public class CircuitBreaker {
+
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int failureThreshold;
+    private final long openMs;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * @return whether the call is permitted
+     */
+    public synchronized boolean tryAcquire(long nowMs) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMs - openedAt < openMs) return false;
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                return false; // a trial call is in flight
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure(long nowMs) {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nowMs;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,10 @@
+package io.confluent.autoscaling.cloud;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
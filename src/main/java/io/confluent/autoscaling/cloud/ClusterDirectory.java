@@ -0,0 +1,179 @@
+package io.confluent.autoscaling.cloud;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import okhttp3.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The Dedicated clusters of the environments listed with `cmk/v2/clusters?environment=`, paging through
+ * the results. The listing is cached for the TTL, so the clusters of a task are read with a list call per
+ * environment instead of a GET call per cluster. The pages are requested without blocking a thread.
+ */
+public class ClusterDirectory {
+
+    private static final String LIST_TEMPLATE = "%s/cmk/v2/clusters?environment=%s&page_size=%d";
+    private static final int PAGE_SIZE = 100;
+    private static final String DEDICATED = "Dedicated";
+    private static final String REQUEST_ERR = "Failed %s request with status [%s] and message [%s]";
+
+    private final OkHttpClient client;
+    private final Gson gson = new Gson();
+    private final String apiUrl;
+    private final String basicAuth;
+    private final Collection<String> environments;
+    private final long ttlMs;
+    private final Set<CompletableFuture<JsonObject>> pages = ConcurrentHashMap.newKeySet();
+
+    private Map<String, JsonObject> clusters;
+    private long listedAt;
+    private CompletableFuture<Map<String, JsonObject>> listing;
+
+    /**
+     * @param apiUrl the base URL of the Confluent Cloud API, e.g. https://api.confluent.cloud
+     */
+    public ClusterDirectory(OkHttpClient client, String apiUrl, String authKey, String authSecret,
+                            Collection<String> environments, long ttlMs) {
+        this.client = client;
+        this.apiUrl = apiUrl;
+        this.basicAuth = Credentials.basic(authKey, authSecret);
+        this.environments = new LinkedHashSet<>(environments);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * @return the Dedicated clusters keyed by the cluster ID, listed again if the cached listing is older than the TTL
+     */
+    public Map<String, JsonObject> clusters(long now) throws RequestException {
+        return AsyncCall.await(clustersAsync(now));
+    }
+
+    /**
+     * The clusters without waiting for the listing. The concurrent callers share the listing in progress,
+     * so cancelling the returned future does not cancel the listing, see {@link #cancel()}.
+     */
+    public synchronized CompletableFuture<Map<String, JsonObject>> clustersAsync(long now) {
+        if (clusters != null && now - listedAt < ttlMs) return CompletableFuture.completedFuture(clusters);
+        var current = listing;
+        if (current == null) {
+            final var listed = new LinkedHashMap<String, JsonObject>();
+            var all = CompletableFuture.<Void>completedFuture(null);
+            for (String environment : environments) {
+                all = all.thenCompose(ignored -> listAsync(environment)
+                        .thenAccept(list -> list.forEach(cluster -> listed.put(cluster.get("id").getAsString(), cluster))));
+            }
+            current = all.thenApply(ignored -> listed(listed, now));
+            this.listing = current;
+            final var completed = current;
+            current.whenComplete((result, error) -> listingCompleted(completed));
+        }
+        return current.thenApply(Function.identity());
+    }
+
+    /**
+     * @return the cluster from the cached listing
+     * @throws RequestException if the listing fails or the cluster is not listed, e.g. it has been deleted
+     */
+    public JsonObject cluster(String clusterId, long now) throws RequestException {
+        return AsyncCall.await(clusterAsync(clusterId, now));
+    }
+
+    public CompletableFuture<JsonObject> clusterAsync(String clusterId, long now) {
+        return clustersAsync(now).thenApply(listed -> {
+            final var cluster = listed.get(clusterId);
+            if (cluster == null) {
+                throw new CompletionException(new RequestException("Cluster [" + clusterId + "] is not listed in " + environments));
+            }
+            return cluster;
+        });
+    }
+
+    /**
+     * Cancels the listing in progress, e.g. when the task stops.
+     */
+    public synchronized void cancel() {
+        if (listing != null) listing.cancel(true);
+        pages.forEach(page -> page.cancel(true));
+    }
+
+    private synchronized Map<String, JsonObject> listed(Map<String, JsonObject> listed, long now) {
+        this.clusters = listed;
+        this.listedAt = now;
+        return listed;
+    }
+
+    private synchronized void listingCompleted(CompletableFuture<Map<String, JsonObject>> completed) {
+        if (listing == completed) listing = null;
+    }
+
+    /**
+     * Replaces the cached cluster, e.g. with the response of its update, so the listing does not hide
+     * the resize in progress until it expires.
+     */
+    public synchronized void update(JsonObject cluster) {
+        if (clusters == null) return;
+        final var updated = new LinkedHashMap<>(clusters);
+        updated.put(cluster.get("id").getAsString(), cluster);
+        this.clusters = updated;
+    }
+
+    /**
+     * Lists the Dedicated clusters of the environment page by page. The other cluster types cannot be resized.
+     */
+    public List<JsonObject> list(String environment) throws RequestException {
+        return AsyncCall.await(listAsync(environment));
+    }
+
+    public CompletableFuture<List<JsonObject>> listAsync(String environment) {
+        return listAsync(String.format(LIST_TEMPLATE, apiUrl, environment, PAGE_SIZE), new ArrayList<>());
+    }
+
+    private CompletableFuture<List<JsonObject>> listAsync(String url, List<JsonObject> result) {
+        return readPage(url).thenCompose(page -> {
+            for (JsonElement element : page.getAsJsonArray("data")) {
+                final var cluster = element.getAsJsonObject();
+                final var config = cluster.getAsJsonObject("spec").getAsJsonObject("config");
+                if (DEDICATED.equals(config.get("kind").getAsString())) result.add(cluster);
+            }
+            final var next = nextPage(page, url);
+            return next == null ? CompletableFuture.completedFuture(result) : listAsync(next, result);
+        });
+    }
+
+    private CompletableFuture<JsonObject> readPage(String url) {
+        final var request = new Request.Builder()
+                .addHeader("Authorization", basicAuth)
+                .tag(String.class, "list-clusters")
+                .url(url).build();
+
+        final var page = AsyncCall.enqueue(client, request, response -> {
+            if (response.isSuccessful()) {
+                return gson.fromJson(response.body().string(), JsonObject.class);
+            }
+            throw new RequestException(String.format(REQUEST_ERR, "GET", response.code(), response.message()));
+        });
+        pages.add(page);
+        page.whenComplete((result, error) -> pages.remove(page));
+        return page;
+    }
+
+    /**
+     * The next page is requested with the page token of the `metadata.next` link against the configured base URL,
+     * as the link points to the public API.
+     */
+    private static String nextPage(JsonObject page, String url) {
+        final var metadata = page.getAsJsonObject("metadata");
+        if (metadata == null || metadata.get("next") == null || metadata.get("next").isJsonNull()) return null;
+
+        final var next = HttpUrl.parse(metadata.get("next").getAsString());
+        final var token = next == null ? null : next.queryParameter("page_token");
+        if (token == null) return null;
+        return HttpUrl.get(url).newBuilder().setQueryParameter("page_token", token).build().toString();
+    }
+}
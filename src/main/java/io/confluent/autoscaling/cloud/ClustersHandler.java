@@ -7,18 +7,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public class ClustersHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClustersHandler.class.getName());
-    private static final String GET_TEMPLATE = "https://api.confluent.cloud/cmk/v2/clusters/%s?environment=%s";
-    private static final String PATCH_TEMPLATE = "https://api.confluent.cloud/cmk/v2/clusters/%s";
+    private static final String GET_TEMPLATE = "%s/cmk/v2/clusters/%s?environment=%s";
+    private static final String PATCH_TEMPLATE = "%s/cmk/v2/clusters/%s";
     private static final String PATCH_BODY = "{\"spec\":{\"config\":{\"cku\":%d,\"kind\":\"Dedicated\"},\"environment\":{\"id\":\"%s\"}}}";
     private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
     private static final String REQUEST_ERR = "Failed %s request with status [%s] and message [%s]";
-    private static final String IO_ERR = "Failed %s request to %s";
 
-    private final OkHttpClient client = new OkHttpClient();
+    private final OkHttpClient client;
     private final Gson gson = new Gson();
 
     private final String readClustersUrl;
@@ -26,46 +26,60 @@ public class ClustersHandler {
     private final String environmentId;
     private final String basicAuth;
 
-    public ClustersHandler(String authKey, String authSecret, String clusterId, String environmentId) {
+    /**
+     * @param apiUrl the base URL of the Confluent Cloud API, e.g. https://api.confluent.cloud
+     */
+    public ClustersHandler(OkHttpClient client, String apiUrl, String authKey, String authSecret, String clusterId,
+                           String environmentId) {
+        this.client = client;
         this.basicAuth = Credentials.basic(authKey, authSecret);
         this.environmentId = environmentId;
-        this.readClustersUrl = String.format(GET_TEMPLATE, clusterId, environmentId);
-        this.updateClustersUrl = String.format(PATCH_TEMPLATE, clusterId);
+        this.readClustersUrl = String.format(GET_TEMPLATE, apiUrl, clusterId, environmentId);
+        this.updateClustersUrl = String.format(PATCH_TEMPLATE, apiUrl, clusterId);
     }
 
     public JsonElement readCluster() throws RequestException {
+        return AsyncCall.await(readClusterAsync());
+    }
+
+    /**
+     * Reads the cluster without waiting for the response, cancelling the returned future cancels the request.
+     */
+    public CompletableFuture<JsonElement> readClusterAsync() {
         final var request = new Request.Builder()
                 .addHeader("Authorization", basicAuth)
+                .tag(String.class, "read-cluster")
                 .url(readClustersUrl).build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                return gson.fromJson(response.body().string(), JsonElement.class);
-            }
-            throw new RequestException(String.format(REQUEST_ERR, "GET", response.code(), response.message()));
-        } catch (IOException e) {
-            throw new RequestException(String.format(IO_ERR, "GET", readClustersUrl), e);
-        }
+        return AsyncCall.enqueue(client, request, response -> read(response, "GET"));
     }
 
     // The number of Confluent Kafka Units (CKUs) for Dedicated cluster types.
     // MULTI_ZONE dedicated clusters must have more than two CKUs.
 
     public JsonElement updateCluster(int ckuNumber) throws RequestException {
+        return AsyncCall.await(updateClusterAsync(ckuNumber));
+    }
+
+    /**
+     * Resizes the cluster without waiting for the response, cancelling the returned future cancels the request.
+     */
+    public CompletableFuture<JsonElement> updateClusterAsync(int ckuNumber) {
         final var strBody = String.format(PATCH_BODY, ckuNumber, this.environmentId);
         final var requestBody = RequestBody.create(strBody, MEDIA_TYPE);
         final var request = new Request.Builder()
                 .addHeader("Authorization", basicAuth)
+                .tag(String.class, "update-cluster")
                 .url(updateClustersUrl).patch(requestBody).build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                return gson.fromJson(response.body().string(), JsonElement.class);
-            }
-            throw new RequestException(String.format(REQUEST_ERR, "PATCH", response.code(), response.message()));
-        } catch (IOException e) {
-            throw new RequestException(String.format(IO_ERR, "PATCH", readClustersUrl), e);
+        return AsyncCall.enqueue(client, request, response -> read(response, "PATCH"));
+    }
+
+    private JsonElement read(Response response, String method) throws IOException, RequestException {
+        if (response.isSuccessful()) {
+            return gson.fromJson(response.body().string(), JsonElement.class);
         }
+        throw new RequestException(String.format(REQUEST_ERR, method, response.code(), response.message()));
     }
 }
 
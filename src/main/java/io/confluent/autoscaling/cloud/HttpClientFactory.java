@@ -0,0 +1,119 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares the HTTP clients, i.e. the connection pools, dispatchers, TLS sessions and circuit breakers,
+ * between all the handlers and tasks of the worker. The handlers configured the same way get the same client.
+ */
+public class HttpClientFactory {
+
+    private static final Map<List<Object>, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private HttpClientFactory() {
+    }
+
+    public static OkHttpClient sharedClient(Settings settings) {
+        return CLIENTS.computeIfAbsent(settings.key(), k -> {
+            final var dispatcher = new Dispatcher();
+            dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost);
+
+            return new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(settings.maxIdleConnections, settings.keepAliveMs, TimeUnit.MILLISECONDS))
+                    .protocols(settings.http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                    .connectTimeout(settings.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(settings.readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .writeTimeout(settings.readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .addInterceptor(new RetryInterceptor(settings.maxRetries, settings.backoffMs, settings.maxBackoffMs,
+                            settings.failureThreshold, settings.openMs))
+                    .build();
+        });
+    }
+
+    public static class Settings {
+
+        private int maxIdleConnections = 5;
+        private long keepAliveMs = 300_000;
+        private boolean http2 = true;
+        private long connectTimeoutMs = 10_000;
+        private long readTimeoutMs = 30_000;
+        private int maxRequestsPerHost = 10;
+        private int maxRetries = 3;
+        private long backoffMs = 500;
+        private long maxBackoffMs = 10_000;
+        private int failureThreshold = 5;
+        private long openMs = 60_000;
+
+        /**
+         * @param maxIdleConnections the number of idle connections to keep in the pool
+         * @param keepAliveMs        how long to keep an idle connection in the pool
+         */
+        public Settings connectionPool(int maxIdleConnections, long keepAliveMs) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMs = keepAliveMs;
+            return this;
+        }
+
+        /**
+         * @param http2 whether to negotiate HTTP/2 with the server
+         */
+        public Settings http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * @param connectTimeoutMs the connect timeout
+         * @param readTimeoutMs    the read and write timeout
+         */
+        public Settings timeouts(long connectTimeoutMs, long readTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerHost the number of concurrent asynchronous requests to a single host
+         */
+        public Settings maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param maxRetries   the number of retries after the first attempt
+         * @param backoffMs    the initial backoff, doubled by every retry
+         * @param maxBackoffMs the maximum backoff and the maximum `Retry-After` worth waiting for
+         */
+        public Settings retries(int maxRetries, long backoffMs, long maxBackoffMs) {
+            this.maxRetries = maxRetries;
+            this.backoffMs = backoffMs;
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold the number of consecutive failures opening the circuit of an API host
+         * @param openMs           how long the circuit stays open
+         */
+        public Settings circuitBreaker(int failureThreshold, long openMs) {
+            this.failureThreshold = failureThreshold;
+            this.openMs = openMs;
+            return this;
+        }
+
+        private List<Object> key() {
+            return List.of(maxIdleConnections, keepAliveMs, http2, connectTimeoutMs, readTimeoutMs, maxRequestsPerHost,
+                    maxRetries, backoffMs, maxBackoffMs, failureThreshold, openMs);
+        }
+    }
+}
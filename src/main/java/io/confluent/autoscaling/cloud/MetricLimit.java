@@ -0,0 +1,107 @@
+package io.confluent.autoscaling.cloud;
+
+/**
+ * The limit of 1 CKU for a metric of the Telemetry API.
+ */
+public class MetricLimit {
+
+    public enum Kind {
+        /**
+         * A count or a volume per second, e.g. the received bytes, summed up per bucket by the Telemetry API.
+         */
+        RATE,
+        /**
+         * A level sampled per bucket, e.g. the partition count.
+         */
+        GAUGE,
+        /**
+         * A fraction of the load of the whole cluster, e.g. the cluster load, which does not depend on the size.
+         */
+        LOAD_FRACTION
+    }
+
+    /**
+     * The limit of a metric without a limit, e.g. the storage of a Dedicated cluster.
+     */
+    public static final double UNLIMITED = 0;
+
+    private final String metric;
+    private final Kind kind;
+    private final double limit;
+    private final boolean hard;
+
+    /**
+     * @param limit the limit of 1 CKU, per second for the rates, or {@link #UNLIMITED}
+     * @param hard  whether the limit is enforced by Confluent Cloud rather than a guideline,
+     *              so the cluster is never scaled in below the capacity for the metric
+     */
+    public MetricLimit(String metric, Kind kind, double limit, boolean hard) {
+        if (limit < 0 || Double.isNaN(limit)) {
+            throw new IllegalArgumentException("The limit of [" + metric + "] must be non-negative.");
+        }
+        this.metric = metric;
+        this.kind = kind;
+        this.limit = limit;
+        this.hard = hard;
+    }
+
+    public String metric() {
+        return metric;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public double limit() {
+        return limit;
+    }
+
+    public boolean isHard() {
+        return hard;
+    }
+
+    public boolean isUnlimited() {
+        return kind != Kind.LOAD_FRACTION && limit == UNLIMITED;
+    }
+
+    public MetricLimit withLimit(double limit) {
+        return new MetricLimit(metric, kind, limit, hard);
+    }
+
+    /**
+     * The limit of 1 CKU per bucket, 0 if the metric is a fraction of the load or unlimited.
+     *
+     * @param timeBucket one of the granularities of the Telemetry API, e.g. "PT1M"
+     */
+    public double bucketLimit(String timeBucket) {
+        return switch (kind) {
+            case RATE -> limit * bucketSeconds(timeBucket);
+            case GAUGE -> limit;
+            case LOAD_FRACTION -> 0;
+        };
+    }
+
+    /**
+     * "PT1M" "PT5M" "PT15M" "PT30M" "PT1H" "PT4H" "PT6H" "PT12H" "P1D"
+     */
+    static long bucketSeconds(String timeBucket) {
+        return switch (timeBucket) {
+            case "PT1M" -> 60;
+            case "PT5M" -> 60 * 5;
+            case "PT15M" -> 60 * 15;
+            case "PT30M" -> 60 * 30;
+            case "PT1H" -> 60 * 60;
+            case "PT4H" -> 60 * 60 * 4;
+            case "PT6H" -> 60 * 60 * 6;
+            case "PT12H" -> 60 * 60 * 12;
+            case "P1D" -> 60 * 60 * 24;
+            default -> throw new UnsupportedOperationException("The bucket [" + timeBucket + "] is not supported.");
+        };
+    }
+
+    @Override
+    public String toString() {
+        return metric + " " + kind + (isUnlimited() ? " unlimited" : " " + limit) + (hard ? " hard" : "");
+    }
+}
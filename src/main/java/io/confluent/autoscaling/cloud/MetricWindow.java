@@ -0,0 +1,104 @@
+package io.confluent.autoscaling.cloud;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Ring buffer of the latest metric samples of a cluster ordered by the bucket timestamp.
+ * Keeps at most `capacity` buckets and evicts the samples older than `capacity` buckets
+ * behind the latest one, so gaps in the data never stretch the evaluation horizon.
+ */
+public class MetricWindow {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private final long horizonMs;
+    private int head;
+    private int size;
+
+    public MetricWindow(int capacity, String timeBucket) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be positive.");
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.horizonMs = capacity * Duration.parse(timeBucket).toMillis();
+    }
+
+    /**
+     * Adds the sample or refreshes the value of an already known bucket, e.g. the latest partial bucket.
+     */
+    public void add(long timestamp, double value) {
+        var pos = size - 1;
+        while (pos >= 0 && timestamp(pos) > timestamp) pos--;
+
+        if (pos >= 0 && timestamp(pos) == timestamp) {
+            values[index(pos)] = value;
+            return;
+        }
+
+        pos++; // the position to insert at
+        if (size == timestamps.length) {
+            if (pos == 0) return; // older than the whole window
+            head = (head + 1) % timestamps.length;
+            size--;
+            pos--;
+        }
+
+        for (int i = size; i > pos; i--) {
+            timestamps[index(i)] = timestamps[index(i - 1)];
+            values[index(i)] = values[index(i - 1)];
+        }
+        timestamps[index(pos)] = timestamp;
+        values[index(pos)] = value;
+        size++;
+
+        final var oldest = lastTimestamp() - horizonMs;
+        while (size > 0 && timestamp(0) <= oldest) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i the sample position, 0 being the oldest
+     */
+    public long timestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    /**
+     * @param i the sample position, 0 being the oldest
+     */
+    public double value(int i) {
+        return values[index(i)];
+    }
+
+    public long lastTimestamp() {
+        return timestamp(size - 1);
+    }
+
+    /**
+     * The time span of the buckets the window keeps.
+     */
+    public long horizonMs() {
+        return horizonMs;
+    }
+
+    /**
+     * The interval to query next. Starts at the latest known bucket, so it is refreshed while still open.
+     */
+    public String nextInterval(String initialInterval) {
+        return isEmpty() ? initialInterval : Instant.ofEpochMilli(lastTimestamp()) + "/now";
+    }
+
+    private int index(int i) {
+        return (head + i) % timestamps.length;
+    }
+}
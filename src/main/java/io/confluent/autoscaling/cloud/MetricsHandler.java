@@ -1,10 +1,15 @@
 package io.confluent.autoscaling.cloud;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class MetricsHandler {
 
@@ -12,39 +17,158 @@ public class MetricsHandler {
             "\"filter\":{\"field\":\"resource.kafka.id\",\"op\":\"EQ\",\"value\":\"%s\"}," +
             "\"granularity\":\"%s\",\"intervals\":[\"%s\"]}";
 
-    private static final String METRICS_URL = "https://api.telemetry.confluent.cloud/v2/metrics/cloud/query";
+    private static final String METRICS_PATH = "/v2/metrics/cloud/query";
     private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
     private static final String REQUEST_ERR = "Failed %s request with status [%s] and message [%s]";
     private static final String IO_ERR = "Failed %s request to %s";
+    private static final String PARSE_ERR = "Unexpected %s response from %s";
 
-    private final OkHttpClient client = new OkHttpClient();
-    private final Gson gson = new Gson();
+    private final OkHttpClient client;
+    private final String metricsUrl;
     private final String basicAuth;
     private final String clusterId;
 
-    public MetricsHandler(String authKey, String authSecret, String clusterId) {
+    /**
+     * @param telemetryUrl the base URL of the Telemetry API, e.g. https://api.telemetry.confluent.cloud
+     */
+    public MetricsHandler(OkHttpClient client, String telemetryUrl, String authKey, String authSecret, String clusterId) {
+        this.client = client;
+        this.metricsUrl = telemetryUrl + METRICS_PATH;
         this.basicAuth = Credentials.basic(authKey, authSecret);
         this.clusterId = clusterId;
     }
 
-    public JsonElement readMetric(String metric, String period, String interval) throws RequestException {
+    /**
+     * Queries the metric and adds the returned samples to the window.
+     */
+    public MetricWindow readMetric(String metric, String period, String interval, MetricWindow window) throws RequestException {
+        final var request = buildRequest(metric, period, interval);
 
+        try (Response response = client.newCall(request).execute()) {
+            return read(response, window);
+        } catch (IOException e) {
+            throw new RequestException(String.format(IO_ERR, "GET", metricsUrl), e);
+        }
+    }
+
+    /**
+     * Queries all the metrics at once, each from the latest bucket known to its window, and returns
+     * the pending responses keyed by the metric name, in the same order as the given windows.
+     * The query API accepts a single aggregation per request, so the requests are fanned out concurrently,
+     * bounded by the maximum number of requests per host of the client's dispatcher.
+     *
+     * @param initialInterval the interval to query when the window is still empty
+     */
+    public Map<String, CompletableFuture<MetricWindow>> readMetrics(Map<String, MetricWindow> windows,
+                                                                    String period, String initialInterval) {
+        final var responses = new LinkedHashMap<String, CompletableFuture<MetricWindow>>();
+        windows.forEach((metric, window) -> responses.put(metric,
+                readMetricAsync(metric, period, window.nextInterval(initialInterval), window)));
+        return responses;
+    }
+
+    /**
+     * Queries the metric without waiting for the response, cancelling the returned future cancels the query.
+     */
+    public CompletableFuture<MetricWindow> readMetricAsync(String metric, String period, String interval,
+                                                           MetricWindow window) {
+        return AsyncCall.enqueue(client, buildRequest(metric, period, interval), response -> read(response, window));
+    }
+
+    /**
+     * Waits for a response returned by {@link #readMetrics} and unwraps the failure cause.
+     */
+    public static MetricWindow await(CompletableFuture<MetricWindow> response) throws RequestException {
+        return AsyncCall.await(response);
+    }
+
+    private Request buildRequest(String metric, String period, String interval) {
         final var strBody = String.format(BODY, metric, clusterId, period, interval);
         final var requestBody = RequestBody.create(strBody, MEDIA_TYPE);
 
-        final var request = new Request.Builder()
+        return new Request.Builder()
                 .addHeader("Authorization", basicAuth)
-                .url(METRICS_URL).post(requestBody).build();
+                .tag(String.class, "query-metric")
+                .url(metricsUrl).post(requestBody).build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                final var str = response.body().string();
-                return gson.fromJson(str, JsonElement.class);
+    private MetricWindow read(Response response, MetricWindow window) throws IOException, RequestException {
+        if (response.isSuccessful()) {
+            try {
+                parse(response.body().charStream(), window);
+                return window;
+            } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+                throw new RequestException(String.format(PARSE_ERR, "GET", metricsUrl), e);
             }
-            throw new RequestException(String.format(REQUEST_ERR, "GET", response.code(), response.message()));
-        } catch (IOException e) {
-            throw new RequestException(String.format(IO_ERR, "GET", METRICS_URL), e);
         }
+        throw new RequestException(String.format(REQUEST_ERR, "GET", response.code(), response.message()));
+    }
+
+    /**
+     * Streams the `data` array of the response into the window without building the JSON tree.
+     * The window keeps the latest buckets only, so the response never needs to be held in memory.
+     */
+    public static void parse(Reader reader, MetricWindow window) throws IOException {
+        final var json = new JsonReader(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!"data".equals(json.nextName())) {
+                json.skipValue();
+                continue;
+            }
+            json.beginArray();
+            while (json.hasNext()) {
+                var timestamp = Long.MIN_VALUE;
+                var value = 0.0;
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "timestamp" -> timestamp = parseTimestamp(json.nextString());
+                        case "value" -> value = json.nextDouble();
+                        default -> json.skipValue();
+                    }
+                }
+                json.endObject();
+                if (timestamp != Long.MIN_VALUE) window.add(timestamp, value);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    /**
+     * Parses the UTC timestamps of the buckets, e.g. 2022-04-21T15:10:00Z, without intermediate objects.
+     */
+    public static long parseTimestamp(String str) {
+        if (str.length() != 20 || str.charAt(4) != '-' || str.charAt(7) != '-' || str.charAt(10) != 'T'
+                || str.charAt(13) != ':' || str.charAt(16) != ':' || str.charAt(19) != 'Z') {
+            return Instant.parse(str).toEpochMilli();
+        }
+        final var year = digits(str, 0, 4);
+        final var month = digits(str, 5, 7);
+        final var day = digits(str, 8, 10);
+        final var seconds = digits(str, 11, 13) * 3600L + digits(str, 14, 16) * 60L + digits(str, 17, 19);
+        return (epochDay(year, month, day) * 86400L + seconds) * 1000L;
+    }
+
+    private static int digits(String str, int from, int to) {
+        var result = 0;
+        for (int i = from; i < to; i++) {
+            final var digit = str.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("Invalid timestamp [" + str + "]");
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    // days since 1970-01-01 in the proleptic Gregorian calendar
+    private static long epochDay(int year, int month, int day) {
+        final var y = month <= 2 ? year - 1 : year;
+        final var era = Math.floorDiv(y, 400);
+        final var yoe = y - era * 400;
+        final var doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final var doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
     }
 
     /*
@@ -52,6 +176,8 @@ public class MetricsHandler {
      * We recommended retrying these type of responses. Usually, this is an indication
      * of a transient server-side issue. You should design your client implementations
      * for querying the Metrics API to be resilient to this type of response for minutes-long periods.
+     *
+     * The 5xx and 429 responses are retried by the RetryInterceptor of the shared client.
      */
 }
 
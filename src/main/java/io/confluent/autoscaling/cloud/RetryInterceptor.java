@@ -0,0 +1,158 @@
+package io.confluent.autoscaling.cloud;
+
+import io.confluent.autoscaling.metrics.AutoScalingMetrics;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries the failed calls, the 5xx and 429 responses with an exponential backoff and a full jitter,
+ * honouring the `Retry-After` header. Every API host has its own circuit breaker, which trips on
+ * the consecutive I/O failures and 5xx responses, so a failing API is not hammered by all the tasks.
+ * All the Confluent Cloud calls are idempotent: the queries are read-only and the updates set an absolute size.
+ * Every attempt is recorded in the metrics of the endpoint named by the request tag, or of the host.
+ * <p>
+ * A blocking call is retried in place. A call enqueued by {@link AsyncCall} is attempted once and the backoff
+ * is handed back in its {@link Deferred} tag, so the call is retried later without parking a dispatcher thread
+ * and holding the per-host request slot for the backoff.
+ */
+public class RetryInterceptor implements Interceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryInterceptor.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The retry state of an asynchronous call carried by its request.
+     */
+    static final class Deferred {
+
+        final int attempt;
+        long delayMs = -1; // the backoff before the next attempt, or -1 if the outcome is final
+
+        Deferred(int attempt) {
+            this.attempt = attempt;
+        }
+    }
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AutoScalingMetrics metrics = AutoScalingMetrics.get();
+    private final int maxRetries;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final int failureThreshold;
+    private final long openMs;
+
+    public RetryInterceptor(int maxRetries, long backoffMs, long maxBackoffMs, int failureThreshold, long openMs) {
+        this.maxRetries = maxRetries;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        final var request = chain.request();
+        final var host = request.url().host();
+        final var endpoint = request.tag(String.class) != null ? request.tag(String.class) : host;
+        final var breaker = breakers.computeIfAbsent(host, k -> new CircuitBreaker(failureThreshold, openMs));
+        final var deferred = request.tag(Deferred.class);
+
+        for (int attempt = deferred != null ? deferred.attempt : 0; ; attempt++) {
+            if (!breaker.tryAcquire(System.currentTimeMillis())) {
+                metrics.recordCircuitOpen(endpoint);
+                throw new CircuitOpenException("The circuit to [" + host + "] is open");
+            }
+
+            final var start = System.currentTimeMillis();
+            final Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                final var end = System.currentTimeMillis();
+                metrics.recordRequest(endpoint, end - start, true);
+                breaker.onFailure(end);
+                if (attempt >= maxRetries || chain.call().isCanceled()) throw e;
+                LOGGER.warn("Retrying " + request.method() + " " + request.url() + " after a failure", e);
+                metrics.recordRetry(endpoint, 0);
+                if (deferred != null) {
+                    deferred.delayMs = backoff(attempt);
+                    throw e;
+                }
+                sleep(backoff(attempt), chain);
+                continue;
+            }
+
+            final var code = response.code();
+            metrics.recordRequest(endpoint, System.currentTimeMillis() - start, !response.isSuccessful());
+            if (code >= 500) {
+                breaker.onFailure(System.currentTimeMillis());
+            } else {
+                breaker.onSuccess();
+            }
+            if (code < 500 && code != TOO_MANY_REQUESTS || attempt >= maxRetries || chain.call().isCanceled()) {
+                return response;
+            }
+
+            final var retryAfter = retryAfter(response.header("Retry-After"), System.currentTimeMillis());
+            if (retryAfter > maxBackoffMs) return response; // not worth blocking the caller for
+
+            LOGGER.warn("Retrying " + request.method() + " " + request.url() + " after status [" + code + "]");
+            metrics.recordRetry(endpoint, code);
+            if (deferred != null) {
+                deferred.delayMs = retryAfter >= 0 ? retryAfter : backoff(attempt);
+                return response;
+            }
+            response.close();
+            sleep(retryAfter >= 0 ? retryAfter : backoff(attempt), chain);
+        }
+    }
+
+    private long backoff(int attempt) {
+        final var ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * @return the delay in milliseconds requested by the server or -1 if there is none
+     */
+    static long retryAfter(String header, long nowMs) {
+        if (header == null) return -1;
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                final var date = ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - nowMs);
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Backs off a blocking call, which is not retried once it is cancelled.
+     */
+    private static void sleep(long delayMs, Chain chain) throws IOException {
+        if (chain.call().isCanceled()) throw new IOException("Canceled");
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+        if (chain.call().isCanceled()) throw new IOException("Canceled");
+    }
+}
@@ -1,10 +1,23 @@
 package io.confluent.autoscaling.connect;
 
+import io.confluent.autoscaling.cloud.CKULimits;
+import io.confluent.autoscaling.cloud.HttpClientFactory;
+import io.confluent.autoscaling.policy.Aggregator;
+import io.confluent.autoscaling.policy.CronExpression;
+import io.confluent.autoscaling.policy.Schedule;
+import io.confluent.autoscaling.policy.ScalingPolicy;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Importance;
 import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.config.ConfigException;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class AutoScalingConfig extends AbstractConfig {
@@ -15,11 +28,34 @@ public class AutoScalingConfig extends AbstractConfig {
     public static final String CLOUD_SECRET = "confluent.cloud.secret";
     private static final String CONFLUENT_CLOUD_SECRET_DOC = "Confluent Cloud API Secret";
 
+    public static final String API_URL = "confluent.cloud.api.url";
+    private static final String API_URL_DOC = "The base URL of the Confluent Cloud API";
+
+    public static final String TELEMETRY_URL = "confluent.cloud.telemetry.url";
+    private static final String TELEMETRY_URL_DOC = "The base URL of the Confluent Cloud Telemetry API";
+
     public static final String ENVIRONMENT = "auto.scaling.environment";
     private static final String ENVIRONMENT_DOC = "Environment ID";
 
     public static final String CLUSTERS = "auto.scaling.clusters";
-    private static final String CLUSTERS_DOC = "List of cluster IDs";
+    private static final String CLUSTERS_DOC = "List of cluster IDs, the ones of the other environments " +
+            "qualified as env-7qgq2/lkc-22rwq2";
+
+    public static final String DISCOVERY_ENABLED = "auto.scaling.discovery.enabled";
+    public static final String DISCOVERY_ENABLED_DOC = "Discover the Dedicated clusters of the environments " +
+            "instead of listing the cluster IDs, and reconfigure the tasks when the clusters change";
+
+    public static final String DISCOVERY_ENVIRONMENTS = "auto.scaling.discovery.environments";
+    public static final String DISCOVERY_ENVIRONMENTS_DOC = "List of environment IDs to discover the clusters in, " +
+            "the configured environment by default";
+
+    public static final String DISCOVERY_NAME_PATTERN = "auto.scaling.discovery.name.pattern";
+    public static final String DISCOVERY_NAME_PATTERN_DOC = "Regular expression the display name of a discovered " +
+            "cluster must match";
+
+    public static final String DISCOVERY_TTL_MS = "auto.scaling.discovery.ttl.ms";
+    public static final String DISCOVERY_TTL_MS_DOC = "Time to cache the listing of the clusters in milliseconds; " +
+            "the tasks read the clusters from the listing and the connector checks it for the changes";
 
     public static final String POLL_INTERVAL_MS = "auto.scaling.poll.interval.ms";
     public static final String POLL_INTERVAL_MS_DOC = "Poll interval in milliseconds";
@@ -34,10 +70,13 @@ public class AutoScalingConfig extends AbstractConfig {
     public static final String INTERVAL_DOC = "Evaluation interval; e.g. now-2h|h/now";
 
     public static final String LOWER_THRESHOLD = "auto.scaling.lower.threshold";
-    public static final String LOWER_THRESHOLD_DOC = "Lower bound for scaling in";
+    public static final String LOWER_THRESHOLD_DOC = "Lower bound for scaling in, " +
+            "overridden per metric with auto.scaling.metric.<metric>.lower";
 
     public static final String UPPER_THRESHOLD = "auto.scaling.upper.threshold";
-    public static final String UPPER_THRESHOLD_DOC = "Upper bound for scaling out";
+    public static final String UPPER_THRESHOLD_DOC = "Upper bound for scaling out, " +
+            "overridden per metric with auto.scaling.metric.<metric>.upper; the metrics can also be weighted " +
+            "with auto.scaling.metric.<metric>.weight, 1 by default and 0 to only report the metric";
 
     public static final String MIN_SIZE = "auto.scaling.min.size";
     public static final String MIN_SIZE_DOC = "Minimal number of CKU";
@@ -45,12 +84,145 @@ public class AutoScalingConfig extends AbstractConfig {
     public static final String MAX_SIZE = "auto.scaling.max.size";
     public static final String MAX_SIZE_DOC = "Maximum number of CKU";
 
+    public static final String TARGET_UTILISATION = "auto.scaling.target.utilisation";
+    public static final String TARGET_UTILISATION_DOC = "Utilisation to size the cluster for when scaling, " +
+            "the middle of the lower and upper bounds by default";
+
+    public static final String MAX_STEP = "auto.scaling.max.step";
+    public static final String MAX_STEP_DOC = "Maximum number of CKU to add or remove at once";
+
+    public static final String AGGREGATOR = "auto.scaling.aggregator";
+    public static final String AGGREGATOR_DOC = "Aggregation of the latest evaluation periods compared with the bounds: " +
+            "all (every period above or below the bound), max, mean, ewma, a percentile as p95, or M-of-N as 3-of-5; " +
+            "overridden per metric with auto.scaling.metric.<metric>.aggregator";
+
+    public static final String METRIC_PREFIX = "auto.scaling.metric.";
+    public static final String AGGREGATOR_SUFFIX = ".aggregator";
+    public static final String LOWER_SUFFIX = ".lower";
+    public static final String UPPER_SUFFIX = ".upper";
+    public static final String WEIGHT_SUFFIX = ".weight";
+
+    public static final String LIMIT_PREFIX = "auto.scaling.limit.";
+
+    public static final String SCHEDULES = "auto.scaling.schedules";
+    public static final String SCHEDULES_DOC = "List of the names of the schedules raising the minimum size of the " +
+            "clusters for a time window, configured with auto.scaling.schedule.<name>.cron, .duration.ms, .min.cku, " +
+            "and optionally .clusters and .timezone (UTC by default)";
+
+    public static final String SCHEDULE_PREFIX = "auto.scaling.schedule.";
+    public static final String CRON_SUFFIX = ".cron";
+    public static final String DURATION_MS_SUFFIX = ".duration.ms";
+    public static final String MIN_CKU_SUFFIX = ".min.cku";
+    public static final String CLUSTERS_SUFFIX = ".clusters";
+    public static final String TIMEZONE_SUFFIX = ".timezone";
+
+    public static final String FORECAST_ENABLED = "auto.scaling.forecast.enabled";
+    public static final String FORECAST_ENABLED_DOC = "Scale out when the utilisation forecast by the linear trend " +
+            "of the metrics crosses the upper bound by the time a resize would complete";
+
+    public static final String FORECAST_PERIODS = "auto.scaling.forecast.periods";
+    public static final String FORECAST_PERIODS_DOC = "Number of the latest periods to fit the trend to";
+
+    public static final String PROVISIONING_TIME_MS = "auto.scaling.provisioning.time.ms";
+    public static final String PROVISIONING_TIME_MS_DOC = "Expected time to resize a cluster in milliseconds";
+
+    public static final String SCALE_OUT_COOLDOWN_MS = "auto.scaling.scale.out.cooldown.ms";
+    public static final String SCALE_OUT_COOLDOWN_MS_DOC = "Time to wait after the last scaling action before scaling out in milliseconds";
+
+    public static final String SCALE_IN_COOLDOWN_MS = "auto.scaling.scale.in.cooldown.ms";
+    public static final String SCALE_IN_COOLDOWN_MS_DOC = "Time to wait after the last scaling action before scaling in in milliseconds";
+
+    public static final String RESIZE_BACKOFF_MAX_MS = "auto.scaling.resize.backoff.max.ms";
+    public static final String RESIZE_BACKOFF_MAX_MS_DOC = "Maximum interval between the cluster reads while a resize " +
+            "is in progress in milliseconds; the interval starts at the poll interval and doubles";
+
     public static final String METRICS = "auto.scaling.metrics";
     public static final String METRICS_DOC = "List of metrics to observe";
 
+    public static final String TOPIC = "auto.scaling.topic";
+    public static final String TOPIC_DOC = "Topic to write the evaluations of the clusters to";
+
     public static final String DRY_RUN = "auto.scaling.dry.run";
     public static final String DRY_RUN_DOC = "Dry-run mode";
 
+    public static final String SCHEDULER_ENABLED = "auto.scaling.scheduler.enabled";
+    public static final String SCHEDULER_ENABLED_DOC = "Shard the clusters across up to tasks.max tasks and evaluate " +
+            "each of them on its own staggered schedule instead of all the clusters of a task at once";
+
+    public static final String SCHEDULER_THREADS = "auto.scaling.scheduler.threads";
+    public static final String SCHEDULER_THREADS_DOC = "Number of threads per task starting the evaluations, " +
+            "which do not block them while the requests are in flight";
+
+    public static final String SCHEDULER_JITTER_MS = "auto.scaling.scheduler.jitter.ms";
+    public static final String SCHEDULER_JITTER_MS_DOC = "Maximum random deviation from the poll interval " +
+            "of the scheduled evaluations in milliseconds";
+
+    public static final String SCHEDULER_BUCKET_ALIGNED = "auto.scaling.scheduler.bucket.aligned";
+    public static final String SCHEDULER_BUCKET_ALIGNED_DOC = "Evaluate each cluster just after the next bucket of " +
+            "the evaluation period is available instead of every poll interval, skipping the polls that cannot see new data";
+
+    public static final String METRICS_LAG_MS = "auto.scaling.metrics.lag.ms";
+    public static final String METRICS_LAG_MS_DOC = "Initial estimate of the time a bucket takes to be available " +
+            "in the Telemetry API after it closes in milliseconds, adapted to the observed lag";
+
+    public static final String SCHEDULER_PROBE_MS = "auto.scaling.scheduler.probe.ms";
+    public static final String SCHEDULER_PROBE_MS_DOC = "Interval between the evaluations of a cluster while its " +
+            "next bucket is overdue in milliseconds";
+
+    public static final String FLEET_ENABLED = "auto.scaling.fleet.enabled";
+    public static final String FLEET_ENABLED_DOC = "Coordinate the resizes of the clusters of the connector within " +
+            "the fleet budgets and the resize rate, granting the most severe clusters first; needs the scheduler, " +
+            "which then evaluates all the clusters in a single task";
+
+    public static final String FLEET_MAX_CKU = "auto.scaling.fleet.max.cku";
+    public static final String FLEET_MAX_CKU_DOC = "Total number of CKU of the clusters of the connector, unlimited " +
+            "by default; limited per environment with auto.scaling.fleet.max.cku.<environment>";
+
+    public static final String FLEET_RESIZES_PER_MINUTE = "auto.scaling.fleet.resizes.per.minute";
+    public static final String FLEET_RESIZES_PER_MINUTE_DOC = "Rate of the resize calls across the clusters of the connector";
+
+    public static final String FLEET_RESIZE_BURST = "auto.scaling.fleet.resize.burst";
+    public static final String FLEET_RESIZE_BURST_DOC = "Number of resize calls permitted at once";
+
+    public static final String FLEET_BATCH_MS = "auto.scaling.fleet.batch.ms";
+    public static final String FLEET_BATCH_MS_DOC = "Time to collect the resizes competing for the budget " +
+            "before granting them by severity in milliseconds";
+
+    public static final String HTTP_MAX_IDLE_CONNECTIONS = "auto.scaling.http.max.idle.connections";
+    public static final String HTTP_MAX_IDLE_CONNECTIONS_DOC = "Number of idle HTTP connections kept in the pool shared by the tasks of the worker";
+
+    public static final String HTTP_KEEP_ALIVE_MS = "auto.scaling.http.keep.alive.ms";
+    public static final String HTTP_KEEP_ALIVE_MS_DOC = "Time to keep an idle HTTP connection in the pool in milliseconds";
+
+    public static final String HTTP2_ENABLED = "auto.scaling.http.http2.enabled";
+    public static final String HTTP2_ENABLED_DOC = "Whether to use HTTP/2 when the server supports it";
+
+    public static final String HTTP_CONNECT_TIMEOUT_MS = "auto.scaling.http.connect.timeout.ms";
+    public static final String HTTP_CONNECT_TIMEOUT_MS_DOC = "HTTP connect timeout in milliseconds";
+
+    public static final String HTTP_READ_TIMEOUT_MS = "auto.scaling.http.read.timeout.ms";
+    public static final String HTTP_READ_TIMEOUT_MS_DOC = "HTTP read and write timeout in milliseconds";
+
+    public static final String HTTP_MAX_REQUESTS_PER_HOST = "auto.scaling.http.max.requests.per.host";
+    public static final String HTTP_MAX_REQUESTS_PER_HOST_DOC = "Maximum number of concurrent asynchronous requests " +
+            "to a single API host from the worker";
+
+    public static final String RETRY_MAX_RETRIES = "auto.scaling.retry.max.retries";
+    public static final String RETRY_MAX_RETRIES_DOC = "Number of retries of a failed, 5xx or 429 Confluent Cloud API call";
+
+    public static final String RETRY_BACKOFF_MS = "auto.scaling.retry.backoff.ms";
+    public static final String RETRY_BACKOFF_MS_DOC = "Initial retry backoff in milliseconds, doubled by every retry and jittered";
+
+    public static final String RETRY_BACKOFF_MAX_MS = "auto.scaling.retry.backoff.max.ms";
+    public static final String RETRY_BACKOFF_MAX_MS_DOC = "Maximum retry backoff in milliseconds; " +
+            "the responses asking to retry later than that are not retried";
+
+    public static final String CIRCUIT_FAILURE_THRESHOLD = "auto.scaling.circuit.failure.threshold";
+    public static final String CIRCUIT_FAILURE_THRESHOLD_DOC = "Number of consecutive failures of an API opening its circuit";
+
+    public static final String CIRCUIT_OPEN_MS = "auto.scaling.circuit.open.ms";
+    public static final String CIRCUIT_OPEN_MS_DOC = "Time the circuit of a failing API stays open in milliseconds";
+
     //  --poll-interval-ms 3000
     //  --interval now-2h|h/now
     //  --period PT5M
@@ -65,8 +237,14 @@ public class AutoScalingConfig extends AbstractConfig {
             new ConfigDef()
                     .define(CLOUD_KEY, Type.STRING, Importance.HIGH, CONFLUENT_CLOUD_KEY_DOC)
                     .define(CLOUD_SECRET, Type.STRING, Importance.HIGH, CONFLUENT_CLOUD_SECRET_DOC)
+                    .define(API_URL, Type.STRING, "https://api.confluent.cloud", Importance.LOW, API_URL_DOC)
+                    .define(TELEMETRY_URL, Type.STRING, "https://api.telemetry.confluent.cloud", Importance.LOW, TELEMETRY_URL_DOC)
                     .define(ENVIRONMENT, Type.STRING, Importance.HIGH, ENVIRONMENT_DOC)
-                    .define(CLUSTERS, Type.LIST, Importance.HIGH, CLUSTERS_DOC)
+                    .define(CLUSTERS, Type.LIST, "", Importance.HIGH, CLUSTERS_DOC)
+                    .define(DISCOVERY_ENABLED, Type.BOOLEAN, false, Importance.MEDIUM, DISCOVERY_ENABLED_DOC)
+                    .define(DISCOVERY_ENVIRONMENTS, Type.LIST, "", Importance.MEDIUM, DISCOVERY_ENVIRONMENTS_DOC)
+                    .define(DISCOVERY_NAME_PATTERN, Type.STRING, ".*", Importance.MEDIUM, DISCOVERY_NAME_PATTERN_DOC)
+                    .define(DISCOVERY_TTL_MS, Type.LONG, 30000L, ConfigDef.Range.atLeast(0), Importance.LOW, DISCOVERY_TTL_MS_DOC)
                     .define(POLL_INTERVAL_MS, Type.LONG, Importance.HIGH, POLL_INTERVAL_MS_DOC)
                     .define(INTERVAL, Type.STRING, Importance.HIGH, INTERVAL_DOC)
                     .define(PERIOD, Type.STRING, Importance.HIGH, PERIOD_DOC)
@@ -75,10 +253,217 @@ public class AutoScalingConfig extends AbstractConfig {
                     .define(UPPER_THRESHOLD, Type.INT, Importance.HIGH, UPPER_THRESHOLD_DOC)
                     .define(MIN_SIZE, Type.INT, Importance.HIGH, MIN_SIZE_DOC)
                     .define(MAX_SIZE, Type.INT, Importance.HIGH, MAX_SIZE_DOC)
+                    .define(TARGET_UTILISATION, Type.INT, null, Importance.MEDIUM, TARGET_UTILISATION_DOC)
+                    .define(MAX_STEP, Type.INT, 1, ConfigDef.Range.atLeast(1), Importance.MEDIUM, MAX_STEP_DOC)
+                    .define(AGGREGATOR, Type.STRING, Aggregator.ALL, AutoScalingConfig::validateAggregator, Importance.MEDIUM, AGGREGATOR_DOC)
+                    .define(SCHEDULES, Type.LIST, "", Importance.MEDIUM, SCHEDULES_DOC)
+                    .define(FORECAST_ENABLED, Type.BOOLEAN, false, Importance.MEDIUM, FORECAST_ENABLED_DOC)
+                    .define(FORECAST_PERIODS, Type.INT, 15, ConfigDef.Range.atLeast(2), Importance.LOW, FORECAST_PERIODS_DOC)
+                    .define(PROVISIONING_TIME_MS, Type.LONG, 1800000L, Importance.MEDIUM, PROVISIONING_TIME_MS_DOC)
+                    .define(SCALE_OUT_COOLDOWN_MS, Type.LONG, 300000L, Importance.MEDIUM, SCALE_OUT_COOLDOWN_MS_DOC)
+                    .define(SCALE_IN_COOLDOWN_MS, Type.LONG, 900000L, Importance.MEDIUM, SCALE_IN_COOLDOWN_MS_DOC)
+                    .define(RESIZE_BACKOFF_MAX_MS, Type.LONG, 300000L, Importance.LOW, RESIZE_BACKOFF_MAX_MS_DOC)
                     .define(METRICS, Type.LIST, Importance.HIGH, METRICS_DOC)
-                    .define(DRY_RUN, Type.BOOLEAN, false, Importance.LOW, DRY_RUN_DOC);
+                    .define(TOPIC, Type.STRING, "confluent-cloud-auto-scaling", Importance.MEDIUM, TOPIC_DOC)
+                    .define(DRY_RUN, Type.BOOLEAN, false, Importance.LOW, DRY_RUN_DOC)
+                    .define(SCHEDULER_ENABLED, Type.BOOLEAN, false, Importance.MEDIUM, SCHEDULER_ENABLED_DOC)
+                    .define(SCHEDULER_THREADS, Type.INT, 2, Importance.LOW, SCHEDULER_THREADS_DOC)
+                    .define(SCHEDULER_JITTER_MS, Type.LONG, 2000L, Importance.LOW, SCHEDULER_JITTER_MS_DOC)
+                    .define(SCHEDULER_BUCKET_ALIGNED, Type.BOOLEAN, false, Importance.MEDIUM, SCHEDULER_BUCKET_ALIGNED_DOC)
+                    .define(METRICS_LAG_MS, Type.LONG, 60000L, ConfigDef.Range.atLeast(0), Importance.LOW, METRICS_LAG_MS_DOC)
+                    .define(SCHEDULER_PROBE_MS, Type.LONG, 15000L, ConfigDef.Range.atLeast(1), Importance.LOW, SCHEDULER_PROBE_MS_DOC)
+                    .define(FLEET_ENABLED, Type.BOOLEAN, false, Importance.MEDIUM, FLEET_ENABLED_DOC)
+                    .define(FLEET_MAX_CKU, Type.INT, null, Importance.MEDIUM, FLEET_MAX_CKU_DOC)
+                    .define(FLEET_RESIZES_PER_MINUTE, Type.DOUBLE, 30.0, ConfigDef.Range.atLeast(0.1), Importance.LOW, FLEET_RESIZES_PER_MINUTE_DOC)
+                    .define(FLEET_RESIZE_BURST, Type.INT, 10, ConfigDef.Range.atLeast(1), Importance.LOW, FLEET_RESIZE_BURST_DOC)
+                    .define(FLEET_BATCH_MS, Type.LONG, 1000L, ConfigDef.Range.atLeast(0), Importance.LOW, FLEET_BATCH_MS_DOC)
+                    .define(HTTP_MAX_IDLE_CONNECTIONS, Type.INT, 5, Importance.LOW, HTTP_MAX_IDLE_CONNECTIONS_DOC)
+                    .define(HTTP_KEEP_ALIVE_MS, Type.LONG, 300000L, Importance.LOW, HTTP_KEEP_ALIVE_MS_DOC)
+                    .define(HTTP2_ENABLED, Type.BOOLEAN, true, Importance.LOW, HTTP2_ENABLED_DOC)
+                    .define(HTTP_CONNECT_TIMEOUT_MS, Type.LONG, 10000L, Importance.LOW, HTTP_CONNECT_TIMEOUT_MS_DOC)
+                    .define(HTTP_READ_TIMEOUT_MS, Type.LONG, 30000L, Importance.LOW, HTTP_READ_TIMEOUT_MS_DOC)
+                    .define(HTTP_MAX_REQUESTS_PER_HOST, Type.INT, 10, Importance.LOW, HTTP_MAX_REQUESTS_PER_HOST_DOC)
+                    .define(RETRY_MAX_RETRIES, Type.INT, 3, Importance.LOW, RETRY_MAX_RETRIES_DOC)
+                    .define(RETRY_BACKOFF_MS, Type.LONG, 500L, Importance.LOW, RETRY_BACKOFF_MS_DOC)
+                    .define(RETRY_BACKOFF_MAX_MS, Type.LONG, 10000L, Importance.LOW, RETRY_BACKOFF_MAX_MS_DOC)
+                    .define(CIRCUIT_FAILURE_THRESHOLD, Type.INT, 5, Importance.LOW, CIRCUIT_FAILURE_THRESHOLD_DOC)
+                    .define(CIRCUIT_OPEN_MS, Type.LONG, 60000L, Importance.LOW, CIRCUIT_OPEN_MS_DOC);
 
     public AutoScalingConfig(Map<String, ?> parsedConfig) {
         super(CONFIG_DEF, parsedConfig);
     }
+
+    /**
+     * The fleet coordinator settings of the connector, with the budgets of the environments configured as
+     * `auto.scaling.fleet.max.cku.<environment>`. A cluster not read within 3 poll intervals no longer holds
+     * the expansions.
+     */
+    public FleetCoordinator.Settings fleetSettings() {
+        final var environments = new HashMap<String, Integer>();
+        originalsWithPrefix(FLEET_MAX_CKU + ".").forEach((environment, value) -> {
+            try {
+                environments.put(environment, Integer.parseInt(String.valueOf(value).trim()));
+            } catch (NumberFormatException e) {
+                throw new ConfigException(FLEET_MAX_CKU + "." + environment, value, "Must be a number of CKU");
+            }
+        });
+        return new FleetCoordinator.Settings()
+                .connector(originalsStrings().getOrDefault("name", ""))
+                .budgets(getInt(FLEET_MAX_CKU), environments)
+                .resizeRate(getDouble(FLEET_RESIZES_PER_MINUTE), getInt(FLEET_RESIZE_BURST))
+                .batch(getLong(FLEET_BATCH_MS))
+                .reportTimeout(3 * getLong(POLL_INTERVAL_MS));
+    }
+
+    public HttpClientFactory.Settings httpClientSettings() {
+        return new HttpClientFactory.Settings()
+                .connectionPool(getInt(HTTP_MAX_IDLE_CONNECTIONS), getLong(HTTP_KEEP_ALIVE_MS))
+                .http2(getBoolean(HTTP2_ENABLED))
+                .timeouts(getLong(HTTP_CONNECT_TIMEOUT_MS), getLong(HTTP_READ_TIMEOUT_MS))
+                .maxRequestsPerHost(getInt(HTTP_MAX_REQUESTS_PER_HOST))
+                .retries(getInt(RETRY_MAX_RETRIES), getLong(RETRY_BACKOFF_MS), getLong(RETRY_BACKOFF_MAX_MS))
+                .circuitBreaker(getInt(CIRCUIT_FAILURE_THRESHOLD), getLong(CIRCUIT_OPEN_MS));
+    }
+
+    /**
+     * The environments to discover the clusters in, the configured environment unless listed.
+     */
+    public List<String> discoveryEnvironments() {
+        final var environments = getList(DISCOVERY_ENVIRONMENTS);
+        return environments.isEmpty() ? List.of(getString(ENVIRONMENT)) : environments;
+    }
+
+    /**
+     * The environment of a cluster listed as `env-7qgq2/lkc-22rwq2`, the configured environment if not qualified.
+     */
+    public String environmentOf(String cluster) {
+        final var separator = cluster.indexOf('/');
+        return separator < 0 ? getString(ENVIRONMENT) : cluster.substring(0, separator);
+    }
+
+    public static String clusterIdOf(String cluster) {
+        return cluster.substring(cluster.indexOf('/') + 1);
+    }
+
+    public static String qualifiedCluster(String environment, String clusterId) {
+        return environment + "/" + clusterId;
+    }
+
+    /**
+     * The target utilisation after a resize, the middle of the lower and upper bounds unless configured.
+     */
+    public int targetUtilisation() {
+        final var configured = getInt(TARGET_UTILISATION);
+        return configured != null ? configured : (getInt(LOWER_THRESHOLD) + getInt(UPPER_THRESHOLD)) / 2;
+    }
+
+    /**
+     * The settings configured per metric as `auto.scaling.metric.<metric><suffix>`, keyed by the metric,
+     * e.g. the aggregators with the `.aggregator` suffix.
+     */
+    public Map<String, String> metricSettings(String suffix) {
+        final var settings = new HashMap<String, String>();
+        originalsWithPrefix(METRIC_PREFIX).forEach((key, value) -> {
+            if (key.endsWith(suffix)) {
+                settings.put(key.substring(0, key.length() - suffix.length()), String.valueOf(value));
+            }
+        });
+        return settings;
+    }
+
+    /**
+     * The limits of 1 CKU overridden by the settings `auto.scaling.limit.<metric>`, see {@link CKULimits}.
+     *
+     * @param cloud        the cloud of the cluster, or null if unknown
+     * @param region       the region of the cluster, or null if unknown
+     * @param availability the availability of the cluster, or null if unknown
+     */
+    public CKULimits ckuLimits(String cloud, String region, String availability) {
+        final var settings = new HashMap<String, String>();
+        originalsWithPrefix(LIMIT_PREFIX).forEach((key, value) -> settings.put(key, String.valueOf(value)));
+        try {
+            return CKULimits.defaults().configure(settings, cloud, region, availability);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigException(e.getMessage());
+        }
+    }
+
+    /**
+     * The schedules of a cluster, i.e. the ones listing it in their `.clusters` and the ones not listing any.
+     *
+     * @param cluster the cluster ID, optionally qualified by its environment, or null for the schedules of all clusters
+     */
+    public List<Schedule> schedules(String cluster) {
+        final var result = new ArrayList<Schedule>();
+        for (String name : getList(SCHEDULES)) {
+            final var prefix = SCHEDULE_PREFIX + name;
+            final var clusters = originalsStrings().getOrDefault(prefix + CLUSTERS_SUFFIX, "").trim();
+            if (!clusters.isEmpty() && (cluster == null || Arrays.stream(clusters.split("\\s*,\\s*"))
+                    .noneMatch(c -> c.equals(cluster) || c.equals(clusterIdOf(cluster))))) {
+                continue;
+            }
+            try {
+                final var zone = ZoneId.of(originalsStrings().getOrDefault(prefix + TIMEZONE_SUFFIX, "UTC").trim());
+                final var cron = CronExpression.parse(scheduleSetting(prefix + CRON_SUFFIX), zone);
+                result.add(new Schedule(name, cron, Long.parseLong(scheduleSetting(prefix + DURATION_MS_SUFFIX)),
+                        Integer.parseInt(scheduleSetting(prefix + MIN_CKU_SUFFIX))));
+            } catch (DateTimeException | IllegalArgumentException e) {
+                throw new ConfigException("Schedule [" + name + "] is not valid: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private String scheduleSetting(String name) {
+        final var value = originalsStrings().get(name);
+        if (value == null) throw new ConfigException(name, null, "Missing the setting of a schedule");
+        return value.trim();
+    }
+
+    /**
+     * The policy of all clusters, see {@link #scalingPolicy(String)}.
+     */
+    public ScalingPolicy scalingPolicy() {
+        return scalingPolicy(null);
+    }
+
+    /**
+     * The policy of a cluster with its schedules and the limits not specific to a cloud, region or availability,
+     * see {@link ScalingPolicy#limits}.
+     *
+     * @param cluster the cluster ID, optionally qualified by its environment, or null for any cluster
+     */
+    public ScalingPolicy scalingPolicy(String cluster) {
+        final var policy = new ScalingPolicy(getList(METRICS), getString(PERIOD), ckuLimits(null, null, null))
+                .thresholds(getInt(LOWER_THRESHOLD), getInt(UPPER_THRESHOLD), targetUtilisation())
+                .size(getInt(MIN_SIZE), getInt(MAX_SIZE), getInt(MAX_STEP))
+                .evaluationPeriods(getInt(EVALUATION_PERIODS));
+        final var lowers = metricSettings(LOWER_SUFFIX);
+        final var uppers = metricSettings(UPPER_SUFFIX);
+        final var weights = metricSettings(WEIGHT_SUFFIX);
+        try {
+            policy.aggregators(getString(AGGREGATOR), metricSettings(AGGREGATOR_SUFFIX));
+            for (String metric : getList(METRICS)) {
+                if (!lowers.containsKey(metric) && !uppers.containsKey(metric) && !weights.containsKey(metric)) continue;
+                policy.metricThresholds(metric,
+                        lowers.containsKey(metric) ? Integer.valueOf(lowers.get(metric).trim()) : null,
+                        uppers.containsKey(metric) ? Integer.valueOf(uppers.get(metric).trim()) : null,
+                        weights.containsKey(metric) ? Double.parseDouble(weights.get(metric).trim()) : 1);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ConfigException(e.getMessage());
+        }
+        return policy
+                .forecast(getBoolean(FORECAST_ENABLED), getInt(FORECAST_PERIODS), getLong(PROVISIONING_TIME_MS))
+                .cooldowns(getLong(SCALE_OUT_COOLDOWN_MS), getLong(SCALE_IN_COOLDOWN_MS))
+                .schedules(schedules(cluster));
+    }
+
+    private static void validateAggregator(String name, Object value) {
+        try {
+            Aggregator.of((String) value, 1, "PT1M");
+        } catch (IllegalArgumentException e) {
+            throw new ConfigException(name, value, e.getMessage());
+        }
+    }
 }
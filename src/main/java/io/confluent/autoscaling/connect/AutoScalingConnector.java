@@ -1,14 +1,25 @@
 package io.confluent.autoscaling.connect;
 
+import com.google.gson.JsonObject;
+import io.confluent.autoscaling.cloud.ClusterDirectory;
+import io.confluent.autoscaling.cloud.HttpClientFactory;
+import io.confluent.autoscaling.cloud.RequestException;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.Task;
 import org.apache.kafka.connect.source.SourceConnector;
+import org.apache.kafka.connect.util.ConnectorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
-import static io.confluent.autoscaling.connect.AutoScalingConfig.CLUSTERS;
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
 
 public class AutoScalingConnector extends SourceConnector {
 
@@ -16,6 +27,9 @@ public class AutoScalingConnector extends SourceConnector {
     private static final String CONNECTOR_NAME = AutoScalingConnector.class.getSimpleName();
     private AutoScalingConfig config;
     private Map<String, String> props;
+    private ClusterDirectory directory;
+    private ScheduledExecutorService monitor;
+    private volatile List<String> discovered = List.of();
 
     @Override
     public String version() {
@@ -30,6 +44,59 @@ public class AutoScalingConnector extends SourceConnector {
         log.info("The {} has been started.", CONNECTOR_NAME);
         this.config = new AutoScalingConfig(map);
         this.props = Collections.unmodifiableMap(map);
+        if (config.getBoolean(FLEET_ENABLED) && !config.getBoolean(SCHEDULER_ENABLED)) {
+            throw new ConfigException(FLEET_ENABLED, true, "The fleet budgets need all the clusters in a single task, "
+                    + "enable " + SCHEDULER_ENABLED);
+        }
+
+        if (config.getBoolean(DISCOVERY_ENABLED)) {
+            this.directory = new ClusterDirectory(HttpClientFactory.sharedClient(config.httpClientSettings()),
+                    config.getString(API_URL), config.getString(CLOUD_KEY), config.getString(CLOUD_SECRET),
+                    config.discoveryEnvironments(), config.getLong(DISCOVERY_TTL_MS));
+            discover();
+            final var ttl = Math.max(1000L, config.getLong(DISCOVERY_TTL_MS));
+            this.monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final var thread = new Thread(runnable, "auto-scaling-discovery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            monitor.scheduleWithFixedDelay(() -> {
+                if (discover()) context.requestTaskReconfiguration();
+            }, ttl, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Lists the clusters of the environments, the ones with a matching display name qualified by their environment.
+     *
+     * @return whether the discovered clusters have changed
+     */
+    private boolean discover() {
+        final var pattern = Pattern.compile(config.getString(DISCOVERY_NAME_PATTERN));
+        try {
+            final var clusters = directory.clusters(System.currentTimeMillis()).values().stream()
+                    .filter(cluster -> pattern.matcher(displayName(cluster)).matches())
+                    .map(cluster -> qualifiedCluster(environment(cluster), cluster.get("id").getAsString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (clusters.equals(discovered)) return false;
+
+            log.info("Discovered the clusters {}", clusters);
+            this.discovered = clusters;
+            return true;
+        } catch (RequestException | RuntimeException e) {
+            log.error("Failed to discover the clusters, keeping the clusters {}", discovered, e);
+            return false;
+        }
+    }
+
+    private static String displayName(JsonObject cluster) {
+        final var name = cluster.getAsJsonObject("spec").get("display_name");
+        return name == null ? "" : name.getAsString();
+    }
+
+    private static String environment(JsonObject cluster) {
+        return cluster.getAsJsonObject("spec").getAsJsonObject("environment").get("id").getAsString();
     }
 
     /**
@@ -42,17 +109,33 @@ public class AutoScalingConnector extends SourceConnector {
 
     /**
      * Defines the individual task configurations that will be executed.
-     * The connector creates a task per cluster from the configuration.
-     * The `tasks.max` configuration property will be ignored.
+     * The connector creates a task per cluster from the configuration and the `tasks.max` configuration
+     * property will be ignored, unless the scheduler is enabled. Then the clusters are split into
+     * up to `tasks.max` shards and each task evaluates its shard.
+     * With the discovery enabled, the tasks evaluate the discovered clusters instead of the configured ones.
+     * With the fleet coordination enabled, a single task evaluates all the clusters with the scheduler, as the budgets
+     * are enforced within a worker and the tasks of several shards could run on several workers, each granting
+     * the whole budget.
      */
     @Override
     public List<Map<String, String>> taskConfigs(int maxTasks) {
-        final List<String> clusters = this.config.getList(CLUSTERS);
+        final List<String> clusters = directory != null ? discovered : this.config.getList(CLUSTERS);
         final List<Map<String, String>> configs = new ArrayList<>();
+        if (clusters.isEmpty()) return configs;
+
+        if (this.config.getBoolean(SCHEDULER_ENABLED)) {
+            final var numGroups = this.config.getBoolean(FLEET_ENABLED) ? 1 : Math.min(maxTasks, clusters.size());
+            ConnectorUtils.groupPartitions(clusters, numGroups).forEach(shard -> {
+                final var map = new HashMap<>(this.props);
+                map.put(CLUSTERS, String.join(",", shard));
+                configs.add(map);
+            });
+            return configs;
+        }
 
         clusters.forEach(cluster -> {
             final var map = new HashMap<>(this.props);
-            map.replace(CLUSTERS, cluster); // replace the list of clusters with a single cluster ID
+            map.put(CLUSTERS, cluster); // replace the list of clusters with a single cluster ID
             configs.add(map);
         });
 
@@ -61,6 +144,7 @@ public class AutoScalingConnector extends SourceConnector {
 
     @Override
     public void stop() {
+        if (monitor != null) monitor.shutdownNow();
         log.info("The {} has been stopped.", CONNECTOR_NAME);
     }
 
@@ -1,34 +1,33 @@
 package io.confluent.autoscaling.connect;
 
-import com.google.gson.JsonObject;
-import io.confluent.autoscaling.cloud.ClustersHandler;
-import io.confluent.autoscaling.cloud.MetricsHandler;
-import io.confluent.autoscaling.cloud.RequestException;
-import kotlin.Pair;
+import io.confluent.autoscaling.cloud.ClusterDirectory;
+import io.confluent.autoscaling.cloud.HttpClientFactory;
+import okhttp3.OkHttpClient;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
-import static io.confluent.autoscaling.cloud.CKULimits.*;
 import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
 
 public class AutoScalingTask extends SourceTask {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AutoScalingTask.class);
-    private ClustersHandler clusters;
-    private MetricsHandler metrics;
+    // added to the records to wake up the poll when the task stops
+    private static final SourceRecord WAKE_UP = new SourceRecord(null, null, null, null, null);
+    private final BlockingQueue<SourceRecord> records = new LinkedBlockingQueue<>();
     private AutoScalingConfig config;
-    private List<String> metricsList;
-    private String clusterId;
+    private ClusterDirectory directory;
+    private FleetCoordinator coordinator;
+    private List<ClusterAutoScaler> scalers;
+    private ScheduledExecutorService scheduler;
 
     @Override
     public String version() {
@@ -38,124 +37,148 @@ public class AutoScalingTask extends SourceTask {
     @Override
     public void start(Map<String, String> props) {
         this.config = new AutoScalingConfig(props);
-        this.clusterId = config.getList(CLUSTERS).get(0);
-        this.clusters = new ClustersHandler(config.getString(CLOUD_KEY), config.getString(CLOUD_SECRET),
-                clusterId, config.getString(ENVIRONMENT));
-        this.metrics = new MetricsHandler(config.getString(CLOUD_KEY), config.getString(CLOUD_SECRET),
-                clusterId);
-        this.metricsList = config.getList(METRICS);
+        final var client = HttpClientFactory.sharedClient(config.httpClientSettings());
+        final var clusters = config.getList(CLUSTERS);
+        this.directory = config.getBoolean(DISCOVERY_ENABLED) ? directory(clusters, client) : null;
+        this.coordinator = config.getBoolean(FLEET_ENABLED) ? FleetCoordinator.shared(config.fleetSettings()) : null;
+        this.scalers = clusters.stream()
+                .map(cluster -> new ClusterAutoScaler(config, AutoScalingConfig.clusterIdOf(cluster),
+                        config.environmentOf(cluster), client, directory, coordinator))
+                .collect(Collectors.toList());
+        restore();
+
+        this.scheduler = Executors.newScheduledThreadPool(config.getInt(SCHEDULER_THREADS), threadFactory());
+        if (config.getBoolean(SCHEDULER_ENABLED)) {
+            final var pollInterval = config.getLong(POLL_INTERVAL_MS);
+            // spread the first evaluations over the poll interval so the clusters are not queried in bursts
+            scalers.forEach(scaler -> schedule(scaler, ThreadLocalRandom.current().nextLong(pollInterval + 1)));
+        } else {
+            scheduleRound(0);
+        }
+    }
+
+    /**
+     * The clusters of the task are read from a listing of their environments, cached for the discovery TTL.
+     */
+    private ClusterDirectory directory(List<String> clusters, OkHttpClient client) {
+        final var environments = clusters.stream().map(config::environmentOf).distinct().collect(Collectors.toList());
+        return new ClusterDirectory(client, config.getString(API_URL), config.getString(CLOUD_KEY),
+                config.getString(CLOUD_SECRET), environments, config.getLong(DISCOVERY_TTL_MS));
+    }
+
+    /**
+     * Restores the scaling state of the clusters from the offsets stored by the previous tasks.
+     */
+    private void restore() {
+        final var partitions = scalers.stream()
+                .map(scaler -> ClusterAutoScaler.sourcePartition(scaler.clusterId()))
+                .collect(Collectors.toList());
+        final var offsets = context.offsetStorageReader().offsets(partitions);
+        final var now = System.currentTimeMillis();
+
+        scalers.forEach(scaler -> {
+            final var offset = offsets.get(ClusterAutoScaler.sourcePartition(scaler.clusterId()));
+            if (offset != null) scaler.restore(offset, now);
+        });
     }
 
+    /**
+     * Returns the records of the clusters evaluated in the background as soon as there are any, waiting at most
+     * for the poll interval, or right away once the task is stopped.
+     */
     @Override
     public List<SourceRecord> poll() throws InterruptedException {
+        final List<SourceRecord> result = new ArrayList<>();
+
+        final var first = records.poll(this.config.getLong(POLL_INTERVAL_MS), TimeUnit.MILLISECONDS);
+        if (first != null) result.add(first);
+        records.drainTo(result);
+        result.removeIf(record -> record == WAKE_UP);
+
+        return result.isEmpty() ? null : result;
+    }
 
+    /**
+     * Evaluates all the clusters at once and the next time the poll interval after all of them are evaluated,
+     * or as soon as the next bucket of a cluster is due if the evaluations are aligned to the buckets.
+     */
+    private void scheduleRound(long delayMs) {
         try {
-            final var state = (JsonObject) clusters.readCluster();
-
-            final var statusCKU = state.getAsJsonObject("status").get("cku").getAsInt();
-            final var configCKU = state.getAsJsonObject("spec").getAsJsonObject("config").get("cku").getAsInt();
-            final var lowerBound = config.getInt(LOWER_THRESHOLD);
-            final var upperBound = config.getInt(UPPER_THRESHOLD);
-            final var minCKU = config.getInt(MIN_SIZE);
-            final var maxCKU = config.getInt(MAX_SIZE);
-            final var dryRun = config.getBoolean(DRY_RUN);
-
-            if (statusCKU > configCKU) {
-                LOGGER.info("Cluster shrinking in progress");
-            } else if (statusCKU < configCKU) {
-                LOGGER.info("Cluster expansion in progress");
-            } else {
-
-                final var expansionNeeded = new LongAdder();
-                final var shrinkingNeeded = new LongAdder();
-
-                metricsList.forEach(metric -> {
-                    try {
-                        final var periods = config.getInt(EVALUATION_PERIODS);
-
-                        final var json = (JsonObject) metrics.readMetric(metric, config.getString(PERIOD),
-                                config.getString(INTERVAL));
-
-                        final var data = json.getAsJsonArray("data");
-
-                        final var allElements = StreamSupport
-                                .stream(data.spliterator(), false)
-                                .map(e -> (JsonObject) e)
-                                .map(o -> new Pair<>(o.get("timestamp").getAsString(), o.get("value").getAsBigDecimal()))
-                                .sorted(Comparator.comparing(Pair<String, BigDecimal>::getFirst))
-                                .collect(Collectors.toList());
-
-                        final List<Pair<String, BigDecimal>> subElements = allElements.size() > periods ? allElements
-                                .subList(allElements.size() - periods, allElements.size()) : allElements;
-
-                        final var elements = subElements.stream()
-                                .map(p -> extracted(statusCKU, metric, p.getSecond(), config.getString(PERIOD)))
-                                .collect(Collectors.toList());
-
-                        LOGGER.info("Metric [" + metric + "] evaluations " + elements);
-
-                        if (elements.stream().allMatch(p -> p > upperBound)) expansionNeeded.increment();
-                        if (elements.stream().allMatch(p -> p < lowerBound)) shrinkingNeeded.increment();
-
-                    } catch (RequestException e) {
-                        LOGGER.error("Failure", e);
-                    }
-                });
-
-                if (expansionNeeded.intValue() > 0 && statusCKU < maxCKU) {
-                    LOGGER.warn("Expanding the cluster [" + clusterId + "]");
-                    if (!dryRun) clusters.updateCluster(statusCKU + 1);
-                }
-
-                if (shrinkingNeeded.intValue() == metricsList.size() && statusCKU > minCKU) {
-                    LOGGER.warn("Shrinking the cluster [" + clusterId + "]");
-                    if (!dryRun) clusters.updateCluster(statusCKU - 1);
-                }
-            }
-        } catch (RequestException e) {
-            e.printStackTrace();
+            scheduler.schedule(() -> {
+                final var round = scalers.stream().map(this::evaluate).toArray(CompletableFuture[]::new);
+                CompletableFuture.allOf(round).whenComplete((ignored, error) -> scheduleRound(nextRoundDelay()));
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("The scheduler is stopped, the clusters are not evaluated again");
         }
+    }
 
-        Thread.sleep(this.config.getLong(POLL_INTERVAL_MS));
+    /**
+     * Evaluates the cluster and the next time the poll interval with a jitter after it is evaluated,
+     * or when its next bucket is due if the evaluations are aligned to the buckets.
+     */
+    private void schedule(ClusterAutoScaler scaler, long delayMs) {
+        try {
+            scheduler.schedule(() -> evaluate(scaler).whenComplete((ignored, error) -> schedule(scaler, nextDelay(scaler))),
+                    delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("The scheduler is stopped, the cluster [" + scaler.clusterId() + "] is not rescheduled");
+        }
+    }
 
-        return null;
+    private CompletableFuture<Void> evaluate(ClusterAutoScaler scaler) {
+        try {
+            return scaler.evaluateAsync().thenAccept(record -> {
+                if (record != null) records.add(record);
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to evaluate the cluster [" + scaler.clusterId() + "]", e);
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
-    static long extracted(int statusCKU, String metricName, BigDecimal metricValue, String timeBucket) {
-        return switch (metricName) {
-            case RECEIVED_BYTES -> asPercent(statusCKU, metricValue.longValue(), limitToBucket(RECEIVED_BYTES_LIMIT, timeBucket));
-            case SENT_BYTES -> asPercent(statusCKU, metricValue.longValue(), limitToBucket(SENT_BYTES_LIMIT, timeBucket));
-            case REQUEST_COUNT -> asPercent(statusCKU, metricValue.longValue(), limitToBucket(REQUEST_COUNT_LIMIT, timeBucket));
-            case CONNECTION_COUNT -> asPercent(statusCKU, metricValue.longValue(), limitToBucket(CONNECTION_COUNT_LIMIT, timeBucket));
-            case CLUSTER_LOAD_PERCENT -> (long) (metricValue.doubleValue() * 100);
-            default -> throw new UnsupportedOperationException("Metric [" + metricName + "] is not supported.");
-        };
+    private long nextDelay(ClusterAutoScaler scaler) {
+        final var jitter = config.getLong(SCHEDULER_JITTER_MS);
+        final var aligned = scaler.alignedDelay(System.currentTimeMillis());
+        // the clusters are spread after the bucket is due, as evaluating them earlier cannot see it
+        if (aligned >= 0) return aligned + ThreadLocalRandom.current().nextLong(jitter + 1);
+
+        final var delay = config.getLong(POLL_INTERVAL_MS) + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+        return Math.max(0, delay);
     }
 
-    /**
-     * "PT1M" "PT5M" "PT15M" "PT30M" "PT1H" "PT4H" "PT6H" "PT12H" "P1D"
-     */
-    static long limitToBucket(long metricLimit, String timeBucket) {
-        return switch (timeBucket) {
-            case "PT1M" -> metricLimit * 60;
-            case "PT5M" -> metricLimit * 60 * 5;
-            case "PT15M" -> metricLimit * 60 * 15;
-            case "PT30M" -> metricLimit * 60 * 30;
-            case "PT1H" -> metricLimit * 60 * 60;
-            case "PT4H" -> metricLimit * 60 * 60 * 4;
-            case "PT6H" -> metricLimit * 60 * 60 * 6;
-            case "PT12H" -> metricLimit * 60 * 60 * 12;
-            case "P1D" -> metricLimit * 60 * 60 * 24;
-            default -> throw new UnsupportedOperationException("The bucket [" + timeBucket + "] is not supported.");
-        };
+    private long nextRoundDelay() {
+        final var now = System.currentTimeMillis();
+        final var pollInterval = config.getLong(POLL_INTERVAL_MS);
+        var delay = Long.MAX_VALUE;
+        for (ClusterAutoScaler scaler : scalers) {
+            final var aligned = scaler.alignedDelay(now);
+            delay = Math.min(delay, aligned >= 0 ? aligned : pollInterval);
+        }
+        return delay == Long.MAX_VALUE ? pollInterval : delay;
     }
 
-    static long asPercent(int statusCKU, long metricValue, long metricLimit) {
-        return (100L * metricValue) / (metricLimit * statusCKU);
+    private static ThreadFactory threadFactory() {
+        final var counter = new AtomicInteger();
+        return runnable -> {
+            final var thread = new Thread(runnable, "auto-scaling-scheduler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
+    /**
+     * Stops the evaluations, cancels the requests in flight and wakes up the poll, so the task stops
+     * without waiting for the responses or the poll interval.
+     */
     @Override
     public void stop() {
         LOGGER.warn("Stopping the task...");
+        if (scheduler != null) scheduler.shutdownNow();
+        if (directory != null) directory.cancel();
+        if (scalers != null) scalers.forEach(ClusterAutoScaler::close);
+        if (coordinator != null) coordinator.release();
+        coordinator = null;
+        records.add(WAKE_UP);
     }
 }
@@ -0,0 +1,348 @@
+package io.confluent.autoscaling.connect;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.confluent.autoscaling.cloud.AsyncCall;
+import io.confluent.autoscaling.cloud.ClusterDirectory;
+import io.confluent.autoscaling.cloud.ClustersHandler;
+import io.confluent.autoscaling.cloud.MetricWindow;
+import io.confluent.autoscaling.cloud.MetricsHandler;
+import io.confluent.autoscaling.cloud.RequestException;
+import io.confluent.autoscaling.metrics.AutoScalingMetrics;
+import io.confluent.autoscaling.policy.Aggregator;
+import io.confluent.autoscaling.policy.BucketClock;
+import io.confluent.autoscaling.policy.Evaluation;
+import io.confluent.autoscaling.policy.ScalingPolicy;
+import io.confluent.autoscaling.policy.ScalingState;
+import okhttp3.OkHttpClient;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
+
+/**
+ * Evaluates the metrics of a single cluster and adjusts the number of CKUs.
+ */
+class ClusterAutoScaler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterAutoScaler.class);
+    private static final String CLUSTER = "cluster";
+    private static final String BUCKET = "bucket";
+    private final ClustersHandler clusters;
+    private final ClusterDirectory directory;
+    private final MetricsHandler metrics;
+    private final AutoScalingConfig config;
+    private final Map<String, MetricWindow> windows;
+    private final MetricWindow[] available;
+    private final Aggregator[] aggregators;
+    private final ScalingPolicy policy;
+    private final Evaluation evaluation;
+    private final ScalingState scalingState = new ScalingState();
+    private final AutoScalingMetrics.ClusterMetrics clusterMetrics;
+    private final String clusterId;
+    private final String environmentId;
+    private final String fleetKey;
+    private final FleetCoordinator coordinator;
+    private final BucketClock clock;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private String initialInterval;
+    private long lastBucket;
+    private String placement; // the cloud, region and availability the limits are configured for
+
+    /**
+     * @param directory   the cached listing to read the cluster from, or null to read the cluster on its own
+     * @param coordinator the coordinator granting the resizes within the fleet budgets, or null to resize at will
+     */
+    ClusterAutoScaler(AutoScalingConfig config, String clusterId, String environmentId, OkHttpClient client,
+                      ClusterDirectory directory, FleetCoordinator coordinator) {
+        this.config = config;
+        this.clusterId = clusterId;
+        this.environmentId = environmentId;
+        this.fleetKey = qualifiedCluster(environmentId, clusterId);
+        this.directory = directory;
+        this.coordinator = coordinator;
+        if (coordinator != null) {
+            coordinator.register(fleetKey, environmentId, config.getInt(MIN_SIZE), System.currentTimeMillis());
+        }
+        this.clusters = new ClustersHandler(client, config.getString(API_URL), config.getString(CLOUD_KEY),
+                config.getString(CLOUD_SECRET), clusterId, environmentId);
+        this.metrics = new MetricsHandler(client, config.getString(TELEMETRY_URL), config.getString(CLOUD_KEY),
+                config.getString(CLOUD_SECRET), clusterId);
+        this.policy = config.scalingPolicy(fleetKey);
+        this.evaluation = new Evaluation(policy);
+        this.windows = new LinkedHashMap<>();
+        for (int m = 0; m < policy.metricCount(); m++) {
+            windows.put(policy.metric(m), new MetricWindow(policy.windowCapacity(), config.getString(PERIOD)));
+        }
+        this.available = new MetricWindow[policy.metricCount()];
+        this.aggregators = policy.newAggregators();
+        this.initialInterval = config.getString(INTERVAL);
+        this.clusterMetrics = AutoScalingMetrics.get().cluster(clusterId);
+        this.clock = config.getBoolean(SCHEDULER_BUCKET_ALIGNED) ? new BucketClock(
+                Duration.parse(config.getString(PERIOD)).toMillis(), config.getLong(METRICS_LAG_MS),
+                config.getLong(SCHEDULER_PROBE_MS)) : null;
+    }
+
+    String clusterId() {
+        return clusterId;
+    }
+
+    /**
+     * @return the delay until the next bucket of the cluster is due or the cluster is read again while it is
+     * being resized, or -1 if the evaluations are not aligned to the buckets or the cluster is read on
+     * the poll interval until its resize completes
+     */
+    long alignedDelay(long now) {
+        if (clock == null) return -1;
+        if (!scalingState.isReadDue(now)) return scalingState.nextReadTime() - now;
+        return scalingState.isResizing() ? -1 : clock.nextDelay(now);
+    }
+
+    static Map<String, String> sourcePartition(String clusterId) {
+        return Map.of(CLUSTER, clusterId);
+    }
+
+    /**
+     * Restores the scaling state stored by a previous task. If the last evaluated bucket is recent enough,
+     * the first query only fetches the buckets the windows keep instead of the whole interval.
+     */
+    void restore(Map<String, Object> offset, long now) {
+        scalingState.restore(offset);
+        if (offset.get(BUCKET) != null) {
+            final var bucket = ((Number) offset.get(BUCKET)).longValue();
+            final var horizon = windows.values().iterator().next().horizonMs();
+            if (bucket > 0 && now - bucket <= horizon) {
+                this.initialInterval = Instant.ofEpochMilli(bucket - horizon) + "/now";
+            }
+        }
+        LOGGER.info("Cluster [" + clusterId + "] restored with the last action " + scalingState.lastAction()
+                + " at " + Instant.ofEpochMilli(scalingState.lastActionTime()));
+    }
+
+    /**
+     * Evaluates the cluster without blocking: the cluster, the metrics and the resize are requested asynchronously
+     * and the evaluation runs on the thread completing the last response.
+     *
+     * @return the record of the evaluation, which also stores the state of the cluster in its offset,
+     * or null if the cluster has not been evaluated
+     */
+    CompletableFuture<SourceRecord> evaluateAsync() {
+        final var now = System.currentTimeMillis();
+        if (!scalingState.isReadDue(now)) {
+            LOGGER.debug("Cluster [" + clusterId + "] resize in progress, skipping the evaluation");
+            return CompletableFuture.completedFuture(null);
+        }
+        if (clock != null && !scalingState.isResizing() && !clock.isDue(now)) {
+            LOGGER.debug("Cluster [" + clusterId + "] no new bucket yet, skipping the evaluation");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final var event = new ScalingEvent(clusterId, now, config.getBoolean(DRY_RUN));
+        CompletableFuture<JsonObject> state;
+        try {
+            state = directory != null ? track(directory.clusterAsync(clusterId, now))
+                    : track(clusters.readClusterAsync()).thenApply(JsonElement::getAsJsonObject);
+        } catch (RuntimeException e) {
+            state = CompletableFuture.failedFuture(e);
+        }
+
+        return state.thenCompose(cluster -> evaluate(cluster, event, now)).handle((record, error) -> {
+            if (error == null) return record;
+            if (clock != null) clock.onSkipped(now);
+            if (cancelled) {
+                LOGGER.debug("Cluster [" + clusterId + "] evaluation cancelled");
+            } else {
+                LOGGER.error("Failed to evaluate the cluster [" + clusterId + "]", AsyncCall.failure(error));
+            }
+            return null;
+        });
+    }
+
+    private CompletableFuture<SourceRecord> evaluate(JsonObject state, ScalingEvent event, long now) {
+        configureLimits(state.getAsJsonObject("spec"));
+
+        final var statusCKU = state.getAsJsonObject("status").get("cku").getAsInt();
+        final var configCKU = state.getAsJsonObject("spec").getAsJsonObject("config").get("cku").getAsInt();
+        event.size(statusCKU);
+        if (coordinator != null) coordinator.report(fleetKey, environmentId, configCKU);
+
+        if (statusCKU != configCKU) {
+            // the metrics are not queried until the resize completes
+            final var backoff = scalingState.onResizeInProgress(now, config.getLong(POLL_INTERVAL_MS),
+                    config.getLong(RESIZE_BACKOFF_MAX_MS));
+            if (clock != null) clock.onSkipped(now);
+            final var kind = statusCKU > configCKU ? "shrinking" : "expansion";
+            LOGGER.info("Cluster [" + clusterId + "] " + kind + " in progress, next check in " + backoff + " ms");
+            event.hold(kind + " to " + configCKU + " CKU in progress");
+            return CompletableFuture.completedFuture(record(event, now));
+        }
+
+        if (scalingState.isResizing()) {
+            scalingState.onResizeCompleted(now);
+            LOGGER.info("Cluster [" + clusterId + "] resized to " + statusCKU + " CKU");
+        }
+
+        final var responses = metrics.readMetrics(windows, config.getString(PERIOD), initialInterval);
+        // a failed metric is evaluated as not available, so the responses are awaited regardless of the outcome
+        final var completed = responses.values().stream()
+                .map(response -> track(response).handle((window, error) -> null))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(completed).thenCompose(ignored -> decide(responses, statusCKU, event, now));
+    }
+
+    private CompletableFuture<SourceRecord> decide(Map<String, CompletableFuture<MetricWindow>> responses,
+                                                   int statusCKU, ScalingEvent event, long now) {
+        for (int m = 0; m < policy.metricCount(); m++) {
+            try {
+                final var window = MetricsHandler.await(responses.get(policy.metric(m)));
+                if (!window.isEmpty()) lastBucket = Math.max(lastBucket, window.lastTimestamp());
+                available[m] = window;
+            } catch (RequestException e) {
+                LOGGER.error("Failure", e);
+                available[m] = null;
+            }
+        }
+        if (clock != null) clock.onRead(lastBucket > 0 ? lastBucket : Long.MIN_VALUE, now);
+
+        policy.evaluate(statusCKU, available, aggregators, scalingState, now, evaluation);
+
+        for (int m = 0; m < evaluation.metricCount(); m++) {
+            if (evaluation.utilisation(m) != Evaluation.UNKNOWN) {
+                event.utilisation(evaluation.metric(m), evaluation.utilisation(m));
+            }
+            if (evaluation.forecast(m) != Evaluation.UNKNOWN) {
+                event.forecast(evaluation.metric(m), evaluation.forecast(m));
+            }
+            if (evaluation.reason(m) != null) event.metricReason(evaluation.metric(m), evaluation.reason(m));
+            if (available[m] != null) {
+                LOGGER.info("Cluster [" + clusterId + "] metric [" + evaluation.metric(m) + "] evaluations "
+                        + evaluations(m, statusCKU) + forecastLog(m));
+            }
+        }
+
+        if (evaluation.score() != Evaluation.UNKNOWN) event.score(evaluation.score());
+        final var decision = evaluation.decision();
+        final var reason = evaluation.reason();
+        final var requestedCKU = evaluation.targetCKU();
+        event.decide(decision, requestedCKU, reason);
+        if (decision == Evaluation.Decision.HOLD) {
+            if (evaluation.constraint() != Evaluation.Constraint.NONE) LOGGER.info("Cluster [" + clusterId + "] " + reason);
+            return CompletableFuture.completedFuture(record(event, now));
+        }
+
+        final var dryRun = config.getBoolean(DRY_RUN);
+        final CompletableFuture<Integer> granted = coordinator == null || dryRun
+                ? CompletableFuture.completedFuture(requestedCKU)
+                : track(coordinator.resize(fleetKey, environmentId, statusCKU, requestedCKU, evaluation.score()));
+        return granted.thenCompose(targetCKU -> {
+            if (targetCKU == statusCKU) {
+                event.decide(Evaluation.Decision.HOLD, statusCKU, reason + ", but the fleet budget does not allow it");
+                return CompletableFuture.completedFuture(record(event, now));
+            }
+            if (targetCKU != requestedCKU) {
+                event.decide(decision, targetCKU, reason + ", limited to " + targetCKU + " CKU by the fleet budget");
+            }
+
+            final var expand = decision == Evaluation.Decision.EXPAND;
+            LOGGER.warn((expand ? "Expanding" : "Shrinking") + " the cluster [" + clusterId + "] from " + statusCKU
+                    + " to " + targetCKU + " CKU");
+            final var action = expand ? ScalingState.Action.EXPAND : ScalingState.Action.SHRINK;
+            final CompletableFuture<Void> resized = dryRun ? CompletableFuture.completedFuture(null) : resize(targetCKU);
+            return resized.thenApply(ignored -> {
+                scalingState.onAction(action, targetCKU, !dryRun, now);
+                return record(event, now);
+            });
+        });
+    }
+
+    /**
+     * Applies the limits configured for the cloud, region and availability of the cluster, once known
+     * or if changed, e.g. after a migration to multiple zones.
+     */
+    private void configureLimits(JsonObject spec) {
+        final var cloud = string(spec, "cloud");
+        final var region = string(spec, "region");
+        final var availability = string(spec, "availability");
+        final var current = cloud + "/" + region + "/" + availability;
+        if (current.equals(placement)) return;
+
+        policy.limits(config.ckuLimits(cloud, region, availability));
+        this.placement = current;
+        LOGGER.info("Cluster [" + clusterId + "] limits configured for " + current);
+    }
+
+    private static String string(JsonObject object, String member) {
+        final var element = object.get(member);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private CompletableFuture<Void> resize(int targetCKU) {
+        return track(clusters.updateClusterAsync(targetCKU)).thenAccept(updated -> {
+            if (directory != null) directory.update(updated.getAsJsonObject());
+        });
+    }
+
+    /**
+     * Keeps the pending request until it completes, so it is cancelled when the scaler is closed.
+     */
+    private <T> CompletableFuture<T> track(CompletableFuture<T> request) {
+        pending.add(request);
+        request.whenComplete((result, error) -> pending.remove(request));
+        if (cancelled) request.cancel(true);
+        return request;
+    }
+
+    private void recordMetrics(ScalingEvent event, long durationMs) {
+        clusterMetrics.recordEvaluation(durationMs, event.currentCKU(), event.targetCKU());
+        event.utilisation().forEach(clusterMetrics::recordUtilisation);
+        if (event.decision() == Evaluation.Decision.EXPAND) clusterMetrics.recordScaleOut();
+        if (event.decision() == Evaluation.Decision.SHRINK) clusterMetrics.recordScaleIn();
+    }
+
+    private SourceRecord record(ScalingEvent event, long now) {
+        recordMetrics(event, System.currentTimeMillis() - now);
+        final var offset = scalingState.toOffset();
+        offset.put(BUCKET, lastBucket);
+        return new SourceRecord(sourcePartition(clusterId), offset, config.getString(TOPIC),
+                Schema.STRING_SCHEMA, clusterId, ScalingEvent.SCHEMA, event.toStruct());
+    }
+
+    private List<Long> evaluations(int metric, int cku) {
+        final var window = available[metric];
+        final var periods = config.getInt(EVALUATION_PERIODS);
+        return IntStream.range(Math.max(0, window.size() - periods), window.size())
+                .mapToObj(i -> policy.utilisation(metric, cku, window.value(i)))
+                .collect(Collectors.toList());
+    }
+
+    private String forecastLog(int metric) {
+        if (!config.getBoolean(FORECAST_ENABLED)) return "";
+        final var forecast = evaluation.forecast(metric);
+        return " forecast " + (forecast == Evaluation.UNKNOWN ? null : forecast);
+    }
+
+    /**
+     * Cancels the pending requests, the evaluation in progress completes without a record.
+     */
+    @Override
+    public void close() {
+        cancelled = true;
+        pending.forEach(request -> request.cancel(true));
+        if (coordinator != null) coordinator.forget(fleetKey);
+        clusterMetrics.close();
+    }
+}
@@ -0,0 +1,319 @@
+package io.confluent.autoscaling.connect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Coordinates the resizes of the clusters of a connector within a global CKU budget and per-environment budgets,
+ * and limits the rate of the resize calls across the fleet. The connector runs all its clusters in a single task
+ * when the fleet is coordinated, so the budgets hold whichever worker runs it. The coordinator is kept by the name
+ * of the connector, like the HTTP clients, until the task stops.
+ * <p>
+ * The resizes requested within a batch window compete for the budget and the calls by the severity of the cluster,
+ * i.e. its capacity score, the most severe first. An expansion is granted as many CKU as the budgets allow,
+ * possibly fewer than asked for, and is denied when there is no headroom. A scale in is never denied,
+ * as it frees the budget. The resizes are granted in parallel as long as the budget and the call rate allow.
+ * <p>
+ * The clusters of the tasks are registered before they are evaluated, and no expansion is granted within a budget
+ * until the size of every registered cluster it covers is known, so the budget is not overshot by the first
+ * expansions after a start or a rebalance. A cluster whose size is not reported within the report timeout, e.g. its
+ * reads keep failing, no longer holds the expansions and counts at its minimum size until it is reported.
+ */
+public class FleetCoordinator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetCoordinator.class);
+    private static final Map<List<Object>, FleetCoordinator> COORDINATORS = new HashMap<>();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "auto-scaling-fleet");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Integer maxCKU;
+    private final Map<String, Integer> environmentMaxCKU;
+    private final double tokensPerMs;
+    private final int burst;
+    private final long batchMs;
+    private final long reportTimeoutMs;
+    private final List<Object> key;
+    private final Map<String, Cluster> clusters = new HashMap<>();
+    private final Map<String, Unreported> unreported = new HashMap<>(); // the clusters of unknown size
+    private final PriorityQueue<Resize> queue = new PriorityQueue<>();
+    private double tokens;
+    private long refilledAt;
+    private long sequence;
+    private ScheduledFuture<?> drain;
+    private int users; // guarded by COORDINATORS
+
+    FleetCoordinator(Settings settings, long now) {
+        this.key = settings.key();
+        this.maxCKU = settings.maxCKU;
+        this.environmentMaxCKU = Map.copyOf(settings.environmentMaxCKU);
+        this.tokensPerMs = settings.resizesPerMinute / 60_000.0;
+        this.burst = settings.burst;
+        this.batchMs = settings.batchMs;
+        this.reportTimeoutMs = settings.reportTimeoutMs;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * The coordinator of the connector, created on the first use. Every task using it releases it when it stops.
+     */
+    public static FleetCoordinator shared(Settings settings) {
+        synchronized (COORDINATORS) {
+            final var coordinator = COORDINATORS.computeIfAbsent(settings.key(),
+                    k -> new FleetCoordinator(settings, System.currentTimeMillis()));
+            coordinator.users++;
+            return coordinator;
+        }
+    }
+
+    /**
+     * Removes the coordinator once the last task using it stops, so a restarted connector starts afresh.
+     */
+    public void release() {
+        synchronized (COORDINATORS) {
+            if (--users == 0) COORDINATORS.remove(key, this);
+        }
+    }
+
+    /**
+     * Registers a cluster of a task, whose size counts against the budgets once it is reported.
+     *
+     * @param minCKU the size the cluster counts at until it is reported
+     */
+    public synchronized void register(String cluster, String environment, int minCKU, long now) {
+        if (!clusters.containsKey(cluster)) unreported.putIfAbsent(cluster, new Unreported(environment, minCKU, now));
+    }
+
+    /**
+     * Updates the size of a cluster, i.e. its configured size including a resize in progress.
+     */
+    public synchronized void report(String cluster, String environment, int cku) {
+        unreported.remove(cluster);
+        clusters.put(cluster, new Cluster(environment, cku));
+    }
+
+    public synchronized void forget(String cluster) {
+        unreported.remove(cluster);
+        clusters.remove(cluster);
+    }
+
+    /**
+     * Requests a resize, which is granted with the next batch.
+     *
+     * @param severity the capacity score of the cluster, the higher the sooner the resize is granted
+     * @return the granted size, the current size if the expansion is denied; cancelling the future withdraws
+     * the request
+     */
+    public synchronized CompletableFuture<Integer> resize(String cluster, String environment, int currentCKU,
+                                                          int targetCKU, long severity) {
+        report(cluster, environment, currentCKU);
+        final var resize = new Resize(cluster, environment, currentCKU, targetCKU, severity, sequence++);
+        queue.add(resize);
+        if (drain == null) scheduleDrain(batchMs);
+        return resize.granted;
+    }
+
+    /**
+     * Grants the queued resizes in the order of their severity while the calls are permitted.
+     */
+    synchronized void drain(long now) {
+        if (drain != null) drain.cancel(false);
+        drain = null;
+        refill(now);
+        while (!queue.isEmpty()) {
+            final var resize = queue.peek();
+            if (resize.granted.isDone()) {
+                queue.poll(); // withdrawn
+                continue;
+            }
+            final var granted = grant(resize, now);
+            if (granted == resize.currentCKU) {
+                queue.poll();
+                LOGGER.info("Cluster [" + resize.cluster + "] expansion to " + resize.targetCKU + " CKU denied, "
+                        + (isUnknown(resize.environment, now) ? "the sizes of the fleet are not known yet"
+                        : "the fleet budget is exhausted"));
+                resize.granted.complete(granted);
+                continue;
+            }
+            if (tokens < 1) {
+                scheduleDrain((long) Math.ceil((1 - tokens) / tokensPerMs));
+                return;
+            }
+            queue.poll();
+            tokens--;
+            clusters.put(resize.cluster, new Cluster(resize.environment, granted));
+            resize.granted.complete(granted);
+        }
+    }
+
+    /**
+     * The size within the budgets, the target for a scale in.
+     */
+    private int grant(Resize resize, long now) {
+        if (resize.targetCKU <= resize.currentCKU) return resize.targetCKU;
+        if (isUnknown(resize.environment, now)) return resize.currentCKU;
+
+        var headroom = Integer.MAX_VALUE;
+        if (maxCKU != null) headroom = maxCKU - used(null);
+        final var environmentMax = environmentMaxCKU.get(resize.environment);
+        if (environmentMax != null) headroom = Math.min(headroom, environmentMax - used(resize.environment));
+        return (int) Math.max(resize.currentCKU, Math.min(resize.targetCKU, (long) resize.currentCKU + headroom));
+    }
+
+    /**
+     * Whether a budget covering the environment cannot be checked yet, as the size of a cluster it covers
+     * is not known and may still be reported.
+     */
+    private boolean isUnknown(String environment, long now) {
+        final var limited = environmentMaxCKU.containsKey(environment);
+        if (maxCKU == null && !limited) return false;
+        for (Unreported cluster : unreported.values()) {
+            if (now - cluster.registeredAt >= reportTimeoutMs) continue;
+            if (maxCKU != null || environment.equals(cluster.environment)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param environment the environment or null for the whole fleet
+     */
+    private int used(String environment) {
+        var used = 0;
+        for (Cluster cluster : clusters.values()) {
+            if (environment == null || environment.equals(cluster.environment)) used += cluster.cku;
+        }
+        for (Unreported cluster : unreported.values()) {
+            if (environment == null || environment.equals(cluster.environment)) used += cluster.minCKU;
+        }
+        return used;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerMs);
+        refilledAt = now;
+    }
+
+    private void scheduleDrain(long delayMs) {
+        drain = SCHEDULER.schedule(() -> drain(System.currentTimeMillis()), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized int usedCKU(String environment) {
+        return used(environment);
+    }
+
+    private static class Cluster {
+
+        private final String environment;
+        private final int cku;
+
+        Cluster(String environment, int cku) {
+            this.environment = environment;
+            this.cku = cku;
+        }
+    }
+
+    private static class Unreported {
+
+        private final String environment;
+        private final int minCKU;
+        private final long registeredAt;
+
+        Unreported(String environment, int minCKU, long registeredAt) {
+            this.environment = environment;
+            this.minCKU = minCKU;
+            this.registeredAt = registeredAt;
+        }
+    }
+
+    private static class Resize implements Comparable<Resize> {
+
+        private final String cluster;
+        private final String environment;
+        private final int currentCKU;
+        private final int targetCKU;
+        private final long severity;
+        private final long sequence;
+        private final CompletableFuture<Integer> granted = new CompletableFuture<>();
+
+        Resize(String cluster, String environment, int currentCKU, int targetCKU, long severity, long sequence) {
+            this.cluster = cluster;
+            this.environment = environment;
+            this.currentCKU = currentCKU;
+            this.targetCKU = targetCKU;
+            this.severity = severity;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Resize other) {
+            final var bySeverity = Long.compare(other.severity, severity);
+            return bySeverity != 0 ? bySeverity : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public static class Settings {
+
+        private String connector = "";
+        private Integer maxCKU;
+        private Map<String, Integer> environmentMaxCKU = Map.of();
+        private double resizesPerMinute = 30;
+        private int burst = 10;
+        private long batchMs = 1000;
+        private long reportTimeoutMs = 180_000;
+
+        /**
+         * @param connector the name of the connector sharing the coordinator between its tasks
+         */
+        public Settings connector(String connector) {
+            this.connector = connector;
+            return this;
+        }
+
+        /**
+         * @param maxCKU            the total size of the clusters, or null if unlimited
+         * @param environmentMaxCKU the total size of the clusters of an environment keyed by the environment ID
+         */
+        public Settings budgets(Integer maxCKU, Map<String, Integer> environmentMaxCKU) {
+            this.maxCKU = maxCKU;
+            this.environmentMaxCKU = environmentMaxCKU;
+            return this;
+        }
+
+        /**
+         * @param resizesPerMinute the rate of the resize calls across the fleet
+         * @param burst            the number of resize calls permitted at once
+         */
+        public Settings resizeRate(double resizesPerMinute, int burst) {
+            this.resizesPerMinute = resizesPerMinute;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * @param batchMs how long the resizes are collected before they are granted by their severity
+         */
+        public Settings batch(long batchMs) {
+            this.batchMs = batchMs;
+            return this;
+        }
+
+        /**
+         * @param reportTimeoutMs how long a registered cluster of unknown size holds the expansions within its budgets
+         */
+        public Settings reportTimeout(long reportTimeoutMs) {
+            this.reportTimeoutMs = reportTimeoutMs;
+            return this;
+        }
+
+        private List<Object> key() {
+            return List.of(connector, Objects.toString(maxCKU), new TreeMap<>(environmentMaxCKU), resizesPerMinute,
+                    burst, batchMs, reportTimeoutMs);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.confluent.autoscaling.connect;
+
+import io.confluent.autoscaling.policy.Evaluation.Decision;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a cluster evaluation: the utilisation of every metric, the capacity score, the decision
+ * and its reason, along with the reason of every metric.
+ */
+class ScalingEvent {
+
+    static final Schema UTILISATION_SCHEMA = SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).build();
+
+    static final Schema FORECAST_SCHEMA = SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).optional().build();
+
+    static final Schema REASONS_SCHEMA = SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.STRING_SCHEMA).optional().build();
+
+    static final Schema SCHEMA = SchemaBuilder.struct()
+            .name("io.confluent.autoscaling.ScalingEvent").version(2)
+            .field("cluster", Schema.STRING_SCHEMA)
+            .field("timestamp", Timestamp.SCHEMA)
+            .field("current_cku", Schema.INT32_SCHEMA)
+            .field("target_cku", Schema.INT32_SCHEMA)
+            .field("utilisation", UTILISATION_SCHEMA)
+            .field("forecast", FORECAST_SCHEMA)
+            .field("score", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("decision", Schema.STRING_SCHEMA)
+            .field("reason", Schema.STRING_SCHEMA)
+            .field("metric_reasons", REASONS_SCHEMA)
+            .field("dry_run", Schema.BOOLEAN_SCHEMA)
+            .build();
+
+    private final String cluster;
+    private final long timestamp;
+    private final boolean dryRun;
+    private final Map<String, Long> utilisation = new LinkedHashMap<>();
+    private Map<String, Long> forecast;
+    private Map<String, String> metricReasons;
+    private Long score;
+    private int currentCKU;
+    private int targetCKU;
+    private Decision decision = Decision.HOLD;
+    private String reason = "";
+
+    ScalingEvent(String cluster, long timestamp, boolean dryRun) {
+        this.cluster = cluster;
+        this.timestamp = timestamp;
+        this.dryRun = dryRun;
+    }
+
+    void size(int currentCKU) {
+        this.currentCKU = currentCKU;
+        this.targetCKU = currentCKU;
+    }
+
+    /**
+     * @param utilisation the utilisation of the latest bucket in percent
+     */
+    void utilisation(String metric, long utilisation) {
+        this.utilisation.put(metric, utilisation);
+    }
+
+    void forecast(String metric, long forecast) {
+        if (this.forecast == null) this.forecast = new LinkedHashMap<>();
+        this.forecast.put(metric, forecast);
+    }
+
+    /**
+     * @param score the capacity score, above 100 to scale out and below 0 to scale in
+     */
+    void score(long score) {
+        this.score = score;
+    }
+
+    void metricReason(String metric, String reason) {
+        if (this.metricReasons == null) this.metricReasons = new LinkedHashMap<>();
+        this.metricReasons.put(metric, reason);
+    }
+
+    void decide(Decision decision, int targetCKU, String reason) {
+        this.decision = decision;
+        this.targetCKU = targetCKU;
+        this.reason = reason;
+    }
+
+    void hold(String reason) {
+        decide(Decision.HOLD, currentCKU, reason);
+    }
+
+    int currentCKU() {
+        return currentCKU;
+    }
+
+    int targetCKU() {
+        return targetCKU;
+    }
+
+    Map<String, Long> utilisation() {
+        return utilisation;
+    }
+
+    Decision decision() {
+        return decision;
+    }
+
+    String reason() {
+        return reason;
+    }
+
+    Struct toStruct() {
+        return new Struct(SCHEMA)
+                .put("cluster", cluster)
+                .put("timestamp", new Date(timestamp))
+                .put("current_cku", currentCKU)
+                .put("target_cku", targetCKU)
+                .put("utilisation", utilisation)
+                .put("forecast", forecast)
+                .put("score", score)
+                .put("decision", decision.name())
+                .put("reason", reason)
+                .put("metric_reasons", metricReasons)
+                .put("dry_run", dryRun);
+    }
+}
@@ -0,0 +1,192 @@
+package io.confluent.autoscaling.metrics;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.*;
+import org.apache.kafka.common.metrics.stats.*;
+import org.apache.kafka.common.utils.Time;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The metrics of the worker exposed via JMX under the `confluent.cloud.autoscaling` domain:
+ * the latency and the failures of the Confluent Cloud API calls per endpoint and the evaluations per cluster.
+ */
+public class AutoScalingMetrics {
+
+    private static final String API_GROUP = "api-metrics";
+    private static final String CLUSTER_GROUP = "cluster-metrics";
+    private static final String CLUSTER_METRIC_GROUP = "cluster-metric-metrics";
+    private static final int MAX_LATENCY_MS = 30_000;
+    private static final int HISTOGRAM_BYTES = 4 * 1024;
+
+    private static final AutoScalingMetrics INSTANCE = new AutoScalingMetrics();
+
+    private final Metrics metrics = new Metrics(new MetricConfig(), List.of(new JmxReporter()), Time.SYSTEM,
+            new KafkaMetricsContext("confluent.cloud.autoscaling"));
+    private final Map<String, ClusterMetrics> clusters = new HashMap<>(); // guarded by this
+
+    public static AutoScalingMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records an attempt of an API call, successful or not.
+     *
+     * @param failed whether the call failed or the response was not successful
+     */
+    public void recordRequest(String endpoint, long latencyMs, boolean failed) {
+        apiSensor("request-latency", endpoint, sensor -> {
+            sensor.add(apiMetric("request-latency-avg", endpoint, "Average latency of the calls in ms"), new Avg());
+            sensor.add(apiMetric("request-latency-max", endpoint, "Maximum latency of the calls in ms"), new Max());
+            sensor.add(new Percentiles(HISTOGRAM_BYTES, MAX_LATENCY_MS, Percentiles.BucketSizing.LINEAR,
+                    new Percentile(apiMetric("request-latency-p50", endpoint, "Median latency of the calls in ms"), 50),
+                    new Percentile(apiMetric("request-latency-p99", endpoint, "99th percentile latency of the calls in ms"), 99)));
+            sensor.add(new Meter(apiMetric("request-rate", endpoint, "Number of calls per second"),
+                    apiMetric("request-total", endpoint, "Total number of calls")));
+        }).record(latencyMs);
+
+        if (failed) {
+            apiSensor("request-error", endpoint, sensor -> sensor.add(
+                    apiMetric("request-error-total", endpoint, "Total number of failed calls and unsuccessful responses"),
+                    new CumulativeCount())).record();
+        }
+    }
+
+    /**
+     * Records a retry of an API call.
+     *
+     * @param code the response status code or 0 if the call failed
+     */
+    public void recordRetry(String endpoint, int code) {
+        apiSensor("retry", endpoint, sensor -> sensor.add(
+                apiMetric("retry-total", endpoint, "Total number of retried calls"), new CumulativeCount())).record();
+
+        if (code == 429) {
+            apiSensor("throttle", endpoint, sensor -> sensor.add(
+                    apiMetric("throttle-total", endpoint, "Total number of 429 responses"), new CumulativeCount())).record();
+        }
+    }
+
+    public void recordCircuitOpen(String endpoint) {
+        apiSensor("circuit-open", endpoint, sensor -> sensor.add(
+                apiMetric("circuit-open-total", endpoint, "Total number of calls rejected by the open circuit"),
+                new CumulativeCount())).record();
+    }
+
+    /**
+     * Registers the metrics of the cluster, to be closed when the cluster is not evaluated anymore.
+     * The metrics are shared by the evaluations of the same cluster, e.g. of the tasks overlapping during
+     * a rebalance, and removed once all of them are closed.
+     */
+    public synchronized ClusterMetrics cluster(String clusterId) {
+        final var cluster = clusters.computeIfAbsent(clusterId, id -> new ClusterMetrics(id));
+        cluster.users++;
+        return cluster;
+    }
+
+    private Sensor apiSensor(String name, String endpoint, Consumer<Sensor> init) {
+        final var sensorName = name + ":" + endpoint;
+        final var existing = metrics.getSensor(sensorName);
+        if (existing != null) return existing;
+
+        synchronized (this) {
+            var sensor = metrics.getSensor(sensorName);
+            if (sensor == null) {
+                sensor = metrics.sensor(sensorName);
+                init.accept(sensor);
+            }
+            return sensor;
+        }
+    }
+
+    private MetricName apiMetric(String name, String endpoint, String description) {
+        return metrics.metricName(name, API_GROUP, description, Map.of("endpoint", endpoint));
+    }
+
+    public class ClusterMetrics implements AutoCloseable {
+
+        private final String clusterId;
+        private final Map<String, Long> utilisation = new ConcurrentHashMap<>();
+        private final List<MetricName> gauges = new ArrayList<>();
+        private final Sensor evaluationTime;
+        private final Sensor scaleOuts;
+        private final Sensor scaleIns;
+        private volatile int currentCKU;
+        private volatile int targetCKU;
+        private int users; // guarded by AutoScalingMetrics.this
+
+        private ClusterMetrics(String clusterId) {
+            this.clusterId = clusterId;
+
+            this.evaluationTime = metrics.sensor("evaluation-time:" + clusterId);
+            evaluationTime.add(clusterMetric("evaluation-time-avg", "Average evaluation time in ms"), new Avg());
+            evaluationTime.add(clusterMetric("evaluation-time-max", "Maximum evaluation time in ms"), new Max());
+
+            this.scaleOuts = metrics.sensor("scale-out:" + clusterId);
+            scaleOuts.add(clusterMetric("scale-out-total", "Total number of scale outs"), new CumulativeCount());
+
+            this.scaleIns = metrics.sensor("scale-in:" + clusterId);
+            scaleIns.add(clusterMetric("scale-in-total", "Total number of scale ins"), new CumulativeCount());
+
+            addGauge(clusterMetric("current-cku", "Current number of CKU"), (Gauge<Integer>) (config, now) -> currentCKU);
+            addGauge(clusterMetric("target-cku", "Target number of CKU"), (Gauge<Integer>) (config, now) -> targetCKU);
+        }
+
+        public void recordEvaluation(long durationMs, int currentCKU, int targetCKU) {
+            evaluationTime.record(durationMs);
+            this.currentCKU = currentCKU;
+            this.targetCKU = targetCKU;
+        }
+
+        public void recordScaleOut() {
+            scaleOuts.record();
+        }
+
+        public void recordScaleIn() {
+            scaleIns.record();
+        }
+
+        /**
+         * @param utilisation the utilisation of the latest bucket in percent
+         */
+        public void recordUtilisation(String metric, long utilisation) {
+            if (this.utilisation.put(metric, utilisation) == null) {
+                final var name = metrics.metricName("utilisation", CLUSTER_METRIC_GROUP,
+                        "Utilisation of the latest bucket in percent", Map.of("cluster-id", clusterId, "metric", metric));
+                addGauge(name, (Gauge<Long>) (config, now) -> this.utilisation.get(metric));
+            }
+        }
+
+        private synchronized void addGauge(MetricName name, Gauge<?> gauge) {
+            if (metrics.metric(name) == null) metrics.addMetric(name, gauge);
+            gauges.add(name);
+        }
+
+        private MetricName clusterMetric(String name, String description) {
+            return metrics.metricName(name, CLUSTER_GROUP, description, Map.of("cluster-id", clusterId));
+        }
+
+        /**
+         * Removes the metrics once every user of the cluster has closed them.
+         */
+        @Override
+        public void close() {
+            synchronized (AutoScalingMetrics.this) {
+                if (--users > 0) return;
+                clusters.remove(clusterId, this);
+            }
+            synchronized (this) {
+                metrics.removeSensor(evaluationTime.name());
+                metrics.removeSensor(scaleOuts.name());
+                metrics.removeSensor(scaleIns.name());
+                gauges.forEach(metrics::removeMetric);
+                gauges.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.MetricWindow;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates the latest buckets of a metric of a cluster into the values compared with the bounds: the value
+ * to scale out above the upper bound and the value to scale in below the lower bound. The aggregator keeps
+ * a ring buffer of the latest N buckets and is fed the buckets of the metric window it has not seen yet,
+ * the latest one being refreshed while the bucket is still open.
+ * <p>
+ * The aggregators are, with N being the number of evaluation periods unless given:
+ * <ul>
+ * <li>`all` - all N buckets above or below the bound, the default</li>
+ * <li>`max` - the peak of N buckets</li>
+ * <li>`mean` - the mean of N buckets</li>
+ * <li>`ewma` - the exponentially weighted moving average with the span of N buckets</li>
+ * <li>`p95`, `p99` or any other percentile of N buckets</li>
+ * <li>`3-of-5` - at least M of N buckets above or below the bound</li>
+ * </ul>
+ * The utilisation grows with the metric value, so the aggregates of the values are converted to the utilisation
+ * at the current size and do not have to be reset when the cluster is resized.
+ * <p>
+ * The aggregates are maintained as the buckets are fed, so reading them is O(1). Feeding a bucket is O(1),
+ * amortised for `all` and `max`, which take O(N) only when a refreshed open bucket falls back from the extremum.
+ * The percentiles and `M-of-N` keep the N buckets sorted and shift them in O(N) per bucket.
+ */
+public abstract class Aggregator {
+
+    public static final String ALL = "all";
+    private static final Pattern PERCENTILE = Pattern.compile("p(\\d{1,2})");
+    private static final Pattern M_OF_N = Pattern.compile("(\\d+)-of-(\\d+)");
+
+    private final String spec;
+    private final long horizonMs;
+    protected final double[] values;
+    private final long[] timestamps;
+    private int head;
+    protected int size;
+
+    protected Aggregator(String spec, int capacity, long bucketMs) {
+        this.spec = spec;
+        this.values = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.horizonMs = capacity * bucketMs;
+    }
+
+    /**
+     * @param spec       one of the aggregators, see the class description
+     * @param periods    the number of the latest buckets to aggregate unless given by the spec
+     * @param timeBucket the period of the metric buckets, e.g. "PT1M"
+     */
+    public static Aggregator of(String spec, int periods, String timeBucket) {
+        final var bucketMs = Duration.parse(timeBucket).toMillis();
+        final var percentile = PERCENTILE.matcher(spec);
+        final var mOfN = M_OF_N.matcher(spec);
+        if (percentile.matches() && Integer.parseInt(percentile.group(1)) > 0) {
+            return new Percentile(spec, periods, bucketMs, Integer.parseInt(percentile.group(1)));
+        } else if (mOfN.matches()) {
+            final var m = Integer.parseInt(mOfN.group(1));
+            final var n = Integer.parseInt(mOfN.group(2));
+            if (m < 1 || m > n) throw new IllegalArgumentException("Aggregator [" + spec + "] must have 1 <= M <= N.");
+            return new MOfN(spec, n, bucketMs, m);
+        }
+        return switch (spec) {
+            case ALL -> new All(spec, periods, bucketMs);
+            case "max" -> new Max(spec, periods, bucketMs);
+            case "mean" -> new Mean(spec, periods, bucketMs);
+            case "ewma" -> new Ewma(spec, periods, bucketMs);
+            default -> throw new IllegalArgumentException("Aggregator [" + spec + "] is not supported.");
+        };
+    }
+
+    public String spec() {
+        return spec;
+    }
+
+    /**
+     * The number of the latest buckets aggregated.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Feeds the buckets of the window newer than the last one fed and refreshes the value of the last one.
+     * The older late buckets are ignored.
+     */
+    public void update(MetricWindow window) {
+        var from = window.size();
+        final var last = size == 0 ? Long.MIN_VALUE : timestamp(size - 1);
+        while (from > 0 && window.timestamp(from - 1) >= last) from--;
+
+        for (int i = from; i < window.size(); i++) {
+            final var timestamp = window.timestamp(i);
+            if (size > 0 && timestamp == timestamp(size - 1)) {
+                final var index = index(size - 1);
+                final var previous = values[index];
+                values[index] = window.value(i);
+                onReplace(previous, window.value(i));
+            } else {
+                if (size == values.length) evict();
+                final var index = index(size);
+                timestamps[index] = timestamp;
+                values[index] = window.value(i);
+                size++;
+                onAdd(window.value(i));
+            }
+        }
+        // the buckets beyond the horizon, e.g. after a gap in the data, are not aggregated
+        while (size > 0 && timestamp(0) <= timestamp(size - 1) - horizonMs) evict();
+    }
+
+    /**
+     * @return the value to compare with the upper bound, NaN if there are not enough buckets
+     */
+    public abstract double scaleOutValue();
+
+    /**
+     * @return the value to compare with the lower bound, NaN if there are not enough buckets
+     */
+    public double scaleInValue() {
+        return scaleOutValue();
+    }
+
+    protected void onAdd(double value) {
+    }
+
+    protected void onReplace(double previous, double value) {
+    }
+
+    protected void onEvict(double value) {
+    }
+
+    /**
+     * @param i the bucket position, 0 being the oldest
+     */
+    protected double value(int i) {
+        return values[index(i)];
+    }
+
+    private long timestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    private void evict() {
+        final var value = values[head];
+        head = (head + 1) % values.length;
+        size--;
+        onEvict(value);
+    }
+
+    private int index(int i) {
+        return (head + i) % values.length;
+    }
+
+    /**
+     * All the buckets above or below the bound, i.e. the minimum is above the upper one or the maximum
+     * is below the lower one. Both are kept in monotonic queues of the buckets.
+     */
+    static class All extends Aggregator {
+
+        private final Extremum min;
+        private final Extremum max;
+        private long added; // the sequence number of the next bucket
+        private long evicted; // the sequence number of the oldest bucket
+
+        All(String spec, int periods, long bucketMs) {
+            super(spec, periods, bucketMs);
+            this.min = new Extremum(periods, false);
+            this.max = new Extremum(periods, true);
+        }
+
+        @Override
+        public double scaleOutValue() {
+            return min.value();
+        }
+
+        @Override
+        public double scaleInValue() {
+            return max.value();
+        }
+
+        @Override
+        protected void onAdd(double value) {
+            min.push(added, value);
+            max.push(added, value);
+            added++;
+        }
+
+        @Override
+        protected void onReplace(double previous, double value) {
+            refresh(min, value > previous, value);
+            refresh(max, value < previous, value);
+        }
+
+        @Override
+        protected void onEvict(double value) {
+            evicted++;
+            min.evict(evicted);
+            max.evict(evicted);
+        }
+
+        /**
+         * A refreshed bucket outranking its previous value replaces it, otherwise the candidates it outranked
+         * before are gone and the queue is rebuilt from the buckets.
+         */
+        private void refresh(Extremum extremum, boolean rebuild, double value) {
+            if (rebuild) {
+                extremum.clear();
+                for (int i = 0; i < size; i++) extremum.push(evicted + i, value(i));
+            } else {
+                extremum.dropLast(added - 1);
+                extremum.push(added - 1, value);
+            }
+        }
+    }
+
+    /**
+     * The minimum or the maximum of the buckets: the candidates in the order they were fed, each of them
+     * outlasting the ones before it that it outranks.
+     */
+    private static final class Extremum {
+
+        private final boolean max;
+        private final long[] sequences;
+        private final double[] values;
+        private int head;
+        private int size;
+
+        Extremum(int capacity, boolean max) {
+            this.max = max;
+            this.sequences = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        double value() {
+            return size == 0 ? Double.NaN : values[head];
+        }
+
+        void push(long sequence, double value) {
+            while (size > 0 && (max ? values[tail()] <= value : values[tail()] >= value)) size--;
+            final var index = (head + size) % values.length;
+            sequences[index] = sequence;
+            values[index] = value;
+            size++;
+        }
+
+        /**
+         * Drops the last bucket if it is a candidate, so it can be pushed with its refreshed value.
+         */
+        void dropLast(long sequence) {
+            if (size > 0 && sequences[tail()] == sequence) size--;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * @param oldest the sequence number of the oldest bucket kept
+         */
+        void evict(long oldest) {
+            while (size > 0 && sequences[head] < oldest) {
+                head = (head + 1) % values.length;
+                size--;
+            }
+        }
+
+        private int tail() {
+            return (head + size - 1) % values.length;
+        }
+    }
+
+    static class Max extends All {
+
+        Max(String spec, int periods, long bucketMs) {
+            super(spec, periods, bucketMs);
+        }
+
+        @Override
+        public double scaleOutValue() {
+            return scaleInValue();
+        }
+    }
+
+    /**
+     * The running sum is updated with every bucket added, refreshed or evicted.
+     */
+    static class Mean extends Aggregator {
+
+        private double sum;
+
+        Mean(String spec, int periods, long bucketMs) {
+            super(spec, periods, bucketMs);
+        }
+
+        @Override
+        public double scaleOutValue() {
+            return size == 0 ? Double.NaN : sum / size;
+        }
+
+        @Override
+        protected void onAdd(double value) {
+            sum += value;
+        }
+
+        @Override
+        protected void onReplace(double previous, double value) {
+            sum += value - previous;
+        }
+
+        @Override
+        protected void onEvict(double value) {
+            sum = size == 0 ? 0 : sum - value;
+        }
+    }
+
+    /**
+     * The smoothing factor is 2 / (N + 1). The average before the latest bucket is kept, so a refreshed bucket
+     * replaces its own contribution.
+     */
+    static class Ewma extends Aggregator {
+
+        private final double alpha;
+        private double previous = Double.NaN;
+        private double average = Double.NaN;
+
+        Ewma(String spec, int periods, long bucketMs) {
+            super(spec, periods, bucketMs);
+            this.alpha = 2.0 / (periods + 1);
+        }
+
+        @Override
+        public double scaleOutValue() {
+            return average;
+        }
+
+        @Override
+        protected void onAdd(double value) {
+            previous = average;
+            average = smooth(value);
+        }
+
+        @Override
+        protected void onReplace(double ignored, double value) {
+            average = smooth(value);
+        }
+
+        @Override
+        protected void onEvict(double value) {
+            if (size == 0) previous = average = Double.NaN;
+        }
+
+        private double smooth(double value) {
+            return Double.isNaN(previous) ? value : alpha * value + (1 - alpha) * previous;
+        }
+    }
+
+    /**
+     * The nearest-rank percentile of the buckets, kept sorted as they are fed.
+     */
+    static class Percentile extends Aggregator {
+
+        private final int percentile;
+        private final double[] sorted;
+        private int count;
+
+        Percentile(String spec, int periods, long bucketMs, int percentile) {
+            super(spec, periods, bucketMs);
+            this.percentile = percentile;
+            this.sorted = new double[periods];
+        }
+
+        @Override
+        public double scaleOutValue() {
+            if (count == 0) return Double.NaN;
+            final var rank = (int) Math.ceil(percentile / 100.0 * count);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+
+        /**
+         * @param i the rank of the bucket, 0 being the lowest value
+         */
+        protected double ranked(int i) {
+            return sorted[i];
+        }
+
+        @Override
+        protected void onAdd(double value) {
+            insert(value);
+        }
+
+        @Override
+        protected void onReplace(double previous, double value) {
+            remove(previous);
+            insert(value);
+        }
+
+        @Override
+        protected void onEvict(double value) {
+            remove(value);
+        }
+
+        private void insert(double value) {
+            final var found = Arrays.binarySearch(sorted, 0, count, value);
+            final var index = found >= 0 ? found : -found - 1;
+            System.arraycopy(sorted, index, sorted, index + 1, count - index);
+            sorted[index] = value;
+            count++;
+        }
+
+        private void remove(double value) {
+            final var index = Arrays.binarySearch(sorted, 0, count, value);
+            if (index < 0) return;
+            System.arraycopy(sorted, index + 1, sorted, index, count - index - 1);
+            count--;
+        }
+    }
+
+    /**
+     * At least M of N buckets above the upper bound means the M-th highest is above it, at least M below
+     * the lower bound means the M-th lowest is below it.
+     */
+    static class MOfN extends Percentile {
+
+        private final int m;
+
+        MOfN(String spec, int n, long bucketMs, int m) {
+            super(spec, n, bucketMs, 100);
+            this.m = m;
+        }
+
+        @Override
+        public double scaleOutValue() {
+            return size < m ? Double.NaN : ranked(size - m);
+        }
+
+        @Override
+        public double scaleInValue() {
+            return size < m ? Double.NaN : ranked(m - 1);
+        }
+    }
+}
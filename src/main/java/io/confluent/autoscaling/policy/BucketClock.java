@@ -0,0 +1,74 @@
+package io.confluent.autoscaling.policy;
+
+/**
+ * When the next metric bucket of a cluster can be read: just after the bucket closes plus the ingestion lag
+ * of the Telemetry API. The lag is learned from when the buckets actually show up. An evaluation that finds
+ * no new bucket probes again shortly and the lag is raised to the observed one, while the buckets found on time
+ * lower it a little, so the evaluations keep close to the earliest time the data is available.
+ */
+public class BucketClock {
+
+    private final long bucketMs;
+    private final long probeMs;
+    private long lagMs;
+    private long lastBucket = Long.MIN_VALUE;
+    private boolean missed;
+    private long dueTime;
+
+    /**
+     * @param bucketMs the length of a bucket, i.e. the evaluation period
+     * @param lagMs    the initial estimate of how long after the bucket closes it is available
+     * @param probeMs  how often a bucket is probed for once it is overdue
+     */
+    public BucketClock(long bucketMs, long lagMs, long probeMs) {
+        if (bucketMs <= 0 || probeMs <= 0) throw new IllegalArgumentException("The bucket and the probe interval must be positive.");
+        this.bucketMs = bucketMs;
+        this.probeMs = probeMs;
+        this.lagMs = Math.max(0, lagMs);
+    }
+
+    public long lagMs() {
+        return lagMs;
+    }
+
+    public boolean isDue(long now) {
+        return now >= dueTime;
+    }
+
+    /**
+     * @return the delay until the next bucket is due, zero if it is overdue
+     */
+    public long nextDelay(long now) {
+        return Math.max(0, dueTime - now);
+    }
+
+    /**
+     * Probes again later after an evaluation that did not read the metrics, e.g. it failed or the cluster
+     * is being resized, so a cluster that cannot be read is not evaluated again right away.
+     */
+    public void onSkipped(long now) {
+        dueTime = Math.max(dueTime, now + probeMs);
+    }
+
+    /**
+     * Records the latest bucket read by an evaluation and the time it started.
+     *
+     * @param bucket the start of the latest bucket or {@link Long#MIN_VALUE} if none has been read
+     */
+    public void onRead(long bucket, long now) {
+        if (bucket > lastBucket) {
+            if (lastBucket != Long.MIN_VALUE) {
+                // the first bucket read may be old, only the following ones tell the lag
+                final var observedLag = now - (bucket + bucketMs);
+                lagMs = missed ? Math.max(0, observedLag) : Math.max(0, Math.min(lagMs, observedLag) - probeMs / 2);
+            }
+            lastBucket = bucket;
+            missed = false;
+        } else if (lastBucket != Long.MIN_VALUE) {
+            missed = true;
+        }
+
+        final var expected = lastBucket == Long.MIN_VALUE ? now : lastBucket + 2 * bucketMs + lagMs;
+        dueTime = expected > now ? expected : now + probeMs;
+    }
+}
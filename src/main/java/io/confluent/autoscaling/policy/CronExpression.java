@@ -0,0 +1,134 @@
+package io.confluent.autoscaling.policy;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A cron expression of 5 fields, `minute hour day-of-month month day-of-week`, in a time zone.
+ * <p>
+ * A field is `*`, a value, a range as `1-5` or a list as `1,3,5`, each with an optional step as `0-59/15`.
+ * The months and the days of the week are also named as JAN-DEC and SUN-SAT, Sunday being 0 or 7.
+ * As in cron, when both the day of the month and the day of the week are restricted, either of them matches.
+ */
+public class CronExpression {
+
+    private static final List<String> MONTHS = List.of("JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP",
+            "OCT", "NOV", "DEC");
+    private static final List<String> DAYS = List.of("SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT");
+
+    private final String expression;
+    private final ZoneId zone;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, ZoneId zone, String[] fields) {
+        this.expression = expression;
+        this.zone = zone;
+        this.minutes = field(fields[0], 0, 59, List.of());
+        this.hours = field(fields[1], 0, 23, List.of());
+        this.daysOfMonth = field(fields[2], 1, 31, List.of());
+        this.months = field(fields[3], 1, 12, MONTHS);
+        this.daysOfWeek = field(fields[4], 0, 7, DAYS);
+        if (daysOfWeek.get(7)) daysOfWeek.set(0);
+        this.anyDayOfMonth = fields[2].startsWith("*");
+        this.anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static CronExpression parse(String expression, ZoneId zone) {
+        final var fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression [" + expression + "] must have 5 fields.");
+        }
+        try {
+            return new CronExpression(expression.trim(), zone, fields);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cron expression [" + expression + "] is not valid: " + e.getMessage());
+        }
+    }
+
+    public ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * The latest minute matching the expression in the interval, stepping back by the days and the hours
+     * not matching, so a search over a day checks at most a few dozen times.
+     *
+     * @param afterMs the exclusive start of the interval
+     * @param atMs    the inclusive end of the interval
+     * @return the matching time or {@link Long#MIN_VALUE} if none
+     */
+    public long latest(long afterMs, long atMs) {
+        var time = Instant.ofEpochMilli(atMs).atZone(zone).truncatedTo(ChronoUnit.MINUTES);
+        while (time.toInstant().toEpochMilli() > afterMs) {
+            if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).minusMinutes(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).minusMinutes(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.minusMinutes(1);
+            } else {
+                return time.toInstant().toEpochMilli();
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        if (!months.get(time.getMonthValue())) return false;
+        final var dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        final var dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) return dayOfMonth && dayOfWeek;
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static BitSet field(String field, int min, int max, List<String> names) {
+        final var values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            final var slash = part.indexOf('/');
+            final var range = slash < 0 ? part : part.substring(0, slash);
+            final var step = slash < 0 ? 1 : Integer.parseInt(part.substring(slash + 1));
+            if (step < 1) throw new IllegalArgumentException("the step of [" + part + "] must be positive");
+
+            final int from, to;
+            if ("*".equals(range)) {
+                from = min;
+                to = max;
+            } else if (range.indexOf('-') > 0) {
+                from = value(range.substring(0, range.indexOf('-')), min, names);
+                to = value(range.substring(range.indexOf('-') + 1), min, names);
+            } else {
+                from = value(range, min, names);
+                to = slash < 0 ? from : max;
+            }
+            if (from < min || to > max || from > to) {
+                throw new IllegalArgumentException("[" + part + "] is out of the range " + min + "-" + max);
+            }
+            for (int value = from; value <= to; value += step) values.set(value);
+        }
+        return values;
+    }
+
+    private static int value(String value, int min, List<String> names) {
+        final var index = names.indexOf(value.toUpperCase(Locale.ROOT));
+        return index >= 0 ? index + min : Integer.parseInt(value);
+    }
+
+    @Override
+    public String toString() {
+        return expression + " " + zone;
+    }
+}
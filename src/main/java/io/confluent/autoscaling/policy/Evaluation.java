@@ -0,0 +1,264 @@
+package io.confluent.autoscaling.policy;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of a policy evaluation. It is reused between the evaluations, so evaluating does not allocate;
+ * the reasons are only rendered as text on demand.
+ */
+public class Evaluation {
+
+    public enum Decision {HOLD, EXPAND, SHRINK}
+
+    /**
+     * What the decision is based on.
+     */
+    public enum Trigger {WITHIN_BOUNDS, ABOVE_UPPER, FORECAST_ABOVE_UPPER, BELOW_LOWER, SCHEDULED}
+
+    /**
+     * What holds the cluster back from the action the trigger asks for.
+     */
+    public enum Constraint {NONE, MAX_SIZE, MIN_SIZE, SCALE_OUT_COOLDOWN, SCALE_IN_COOLDOWN, CAPACITY_FLOOR, SCHEDULE}
+
+    /**
+     * The utilisation of a metric without samples.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final ScalingPolicy policy;
+    private final String[] metrics;
+    private final String[] aggregators;
+    private final long[] utilisation;
+    private final long[] aggregate;
+    private final long[] aggregateScore;
+    private final long[] forecast;
+    private final long[] forecastScore;
+    private long score;
+    private int currentCKU;
+    private int targetCKU;
+    private Decision decision = Decision.HOLD;
+    private Trigger trigger = Trigger.WITHIN_BOUNDS;
+    private Constraint constraint = Constraint.NONE;
+    private int triggerMetric = -1;
+    private long triggerUtilisation;
+    private int bound;
+    private int floorMetric = -1;
+    private int floorCKU;
+    private String schedule;
+    private int scheduledCKU;
+
+    public Evaluation(ScalingPolicy policy) {
+        this.policy = policy;
+        this.metrics = policy.metrics();
+        this.aggregators = policy.aggregatorSpecs();
+        this.utilisation = new long[metrics.length];
+        this.aggregate = new long[metrics.length];
+        this.aggregateScore = new long[metrics.length];
+        this.forecast = new long[metrics.length];
+        this.forecastScore = new long[metrics.length];
+        reset(0);
+    }
+
+    void reset(int currentCKU) {
+        Arrays.fill(utilisation, UNKNOWN);
+        Arrays.fill(aggregate, UNKNOWN);
+        Arrays.fill(aggregateScore, UNKNOWN);
+        Arrays.fill(forecast, UNKNOWN);
+        Arrays.fill(forecastScore, UNKNOWN);
+        this.score = UNKNOWN;
+        this.currentCKU = currentCKU;
+        this.targetCKU = currentCKU;
+        this.decision = Decision.HOLD;
+        this.trigger = Trigger.WITHIN_BOUNDS;
+        this.constraint = Constraint.NONE;
+        this.triggerMetric = -1;
+        this.triggerUtilisation = 0;
+        this.bound = 0;
+        this.floorMetric = -1;
+        this.floorCKU = 0;
+        this.schedule = null;
+        this.scheduledCKU = 0;
+    }
+
+    void utilisation(int metric, long utilisation) {
+        this.utilisation[metric] = utilisation;
+    }
+
+    /**
+     * @param aggregate the aggregated utilisation compared with the upper bound in percent
+     * @param score     its score
+     */
+    void aggregate(int metric, long aggregate, long score) {
+        this.aggregate[metric] = aggregate;
+        this.aggregateScore[metric] = score;
+    }
+
+    void forecast(int metric, long forecast, long score) {
+        this.forecast[metric] = forecast;
+        this.forecastScore[metric] = score;
+    }
+
+    void score(long score) {
+        this.score = score;
+    }
+
+    /**
+     * @param metric      the metric index, or -1 if the trigger is not caused by a single metric
+     * @param utilisation the utilisation causing the trigger in percent
+     * @param bound       the bound crossed in percent
+     */
+    void trigger(Trigger trigger, int metric, long utilisation, int bound) {
+        this.trigger = trigger;
+        this.triggerMetric = metric;
+        this.triggerUtilisation = utilisation;
+        this.bound = bound;
+    }
+
+    /**
+     * @param metric the metric with a hard limit holding the cluster back from scaling in
+     * @param cku    the size the metric needs
+     */
+    void floor(int metric, int cku) {
+        this.floorMetric = metric;
+        this.floorCKU = cku;
+    }
+
+    /**
+     * @param schedule the active schedule with the highest minimum size
+     * @param cku      its minimum size bounded by the maximum size
+     */
+    void schedule(String schedule, int cku) {
+        this.schedule = schedule;
+        this.scheduledCKU = cku;
+    }
+
+    void decide(Decision decision, int targetCKU) {
+        this.decision = decision;
+        this.targetCKU = targetCKU;
+    }
+
+    void hold(Constraint constraint) {
+        this.constraint = constraint;
+    }
+
+    public int metricCount() {
+        return metrics.length;
+    }
+
+    public String metric(int i) {
+        return metrics[i];
+    }
+
+    /**
+     * @return the utilisation of the latest bucket in percent or {@link #UNKNOWN}
+     */
+    public long utilisation(int metric) {
+        return utilisation[metric];
+    }
+
+    /**
+     * @return the aggregated utilisation compared with the upper bound in percent or {@link #UNKNOWN}
+     */
+    public long aggregate(int metric) {
+        return aggregate[metric];
+    }
+
+    /**
+     * @return the score of the metric, the higher of its aggregate and forecast, or {@link #UNKNOWN}
+     */
+    public long score(int metric) {
+        return Math.max(aggregateScore[metric], forecastScore[metric]);
+    }
+
+    /**
+     * @return the capacity score of the cluster, the highest score of the weighted metrics, or {@link #UNKNOWN};
+     * above 100 the cluster is scaled out, below 0 it is scaled in
+     */
+    public long score() {
+        return score;
+    }
+
+    /**
+     * @return the forecast utilisation in percent or {@link #UNKNOWN}
+     */
+    public long forecast(int metric) {
+        return forecast[metric];
+    }
+
+    public int currentCKU() {
+        return currentCKU;
+    }
+
+    public int targetCKU() {
+        return targetCKU;
+    }
+
+    public Decision decision() {
+        return decision;
+    }
+
+    public Trigger trigger() {
+        return trigger;
+    }
+
+    public Constraint constraint() {
+        return constraint;
+    }
+
+    public String reason() {
+        final var reason = switch (trigger) {
+            case WITHIN_BOUNDS -> "within bounds";
+            case ABOVE_UPPER -> metrics[triggerMetric] + aggregator(triggerMetric) + " at " + triggerUtilisation
+                    + "%" + above(triggerMetric) + bound + "%";
+            case FORECAST_ABOVE_UPPER ->
+                    metrics[triggerMetric] + " forecast at " + triggerUtilisation + "%" + above(triggerMetric) + bound + "%";
+            case BELOW_LOWER -> "all metrics at most " + triggerUtilisation + "% below " + bound + "%";
+            case SCHEDULED -> "schedule " + schedule + " needs " + scheduledCKU + " CKU";
+        };
+        return switch (constraint) {
+            case NONE -> reason;
+            case MAX_SIZE -> reason + ", but at the maximum size";
+            case MIN_SIZE -> reason + ", but at the minimum size";
+            case SCALE_OUT_COOLDOWN -> reason + ", but the scale out cooldown is active";
+            case SCALE_IN_COOLDOWN -> reason + ", but the scale in cooldown is active";
+            case SCHEDULE -> reason + ", but schedule " + schedule + " needs " + scheduledCKU + " CKU";
+            case CAPACITY_FLOOR -> reason + ", but the " + metrics[floorMetric] + " limit needs " + floorCKU + " CKU";
+        };
+    }
+
+    /**
+     * The reason of a single metric, e.g. "p95 at 72% above 70%, score 106", or null if the metric is unknown.
+     */
+    public String reason(int metric) {
+        if (aggregate[metric] == UNKNOWN && forecast[metric] == UNKNOWN) return null;
+
+        final var lower = policy.lowerBound(metric);
+        final var upper = policy.upperBound(metric);
+        final var reason = new StringBuilder(aggregators[metric]);
+        if (aggregate[metric] != UNKNOWN) {
+            final var value = aggregate[metric];
+            reason.append(" at ").append(value).append('%').append(value > upper ? " above " + upper + "%"
+                    : value < lower ? " below " + lower + "%" : " within " + lower + "-" + upper + "%");
+        }
+        if (forecast[metric] != UNKNOWN) {
+            reason.append(aggregate[metric] != UNKNOWN ? ", " : " ").append("forecast at ").append(forecast[metric]).append('%');
+        }
+        reason.append(", score ").append(score(metric));
+        if (policy.weight(metric) != 1) reason.append(" weighted ").append(policy.weight(metric));
+        return reason.toString();
+    }
+
+    /**
+     * The metric scoring above 100 while below its upper bound is weighted up.
+     */
+    private String above(int metric) {
+        return triggerUtilisation > bound || policy.weight(metric) == 1 ? " above " : " weighted above ";
+    }
+
+    /**
+     * The aggregator of the metric if not the default one, e.g. " p95".
+     */
+    private String aggregator(int metric) {
+        return Aggregator.ALL.equals(aggregators[metric]) ? "" : " " + aggregators[metric];
+    }
+}
@@ -0,0 +1,471 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.CKULimits;
+import io.confluent.autoscaling.cloud.MetricLimit;
+import io.confluent.autoscaling.cloud.MetricWindow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static io.confluent.autoscaling.policy.ScalingState.Action.EXPAND;
+import static io.confluent.autoscaling.policy.ScalingState.Action.SHRINK;
+
+/**
+ * The scaling decision logic. It does no I/O and does not allocate while evaluating, so the connector
+ * and the simulator replaying recorded metrics share the very same logic.
+ */
+public class ScalingPolicy {
+
+    private final String[] metrics;
+    private final String timeBucket;
+    private final double[] bucketLimits; // the limit of 1 CKU per bucket, 0 if the metric is a fraction of the load
+    private final boolean[] fractions;
+    private final boolean[] unlimited;
+    private final boolean[] hardLimits;
+    private final String[] aggregators;
+    private final int[] lowerBounds;
+    private final int[] upperBounds;
+    private final int[] targets;
+    private final double[] weights;
+    private int weightedMetrics;
+    private Schedule[] schedules = new Schedule[0];
+    private int minCKU = 1;
+    private int maxCKU = 1;
+    private int maxStep = 1;
+    private int periods = 3;
+    private boolean forecastEnabled;
+    private int forecastPeriods = 15;
+    private long provisioningTimeMs = 1_800_000;
+    private long scaleOutCooldownMs = 300_000;
+    private long scaleInCooldownMs = 900_000;
+
+    /**
+     * @param metrics    the metrics to evaluate with the default limits, the windows are passed in the same order
+     * @param timeBucket the period of the metric buckets, e.g. "PT1M"
+     */
+    public ScalingPolicy(List<String> metrics, String timeBucket) {
+        this(metrics, timeBucket, CKULimits.defaults());
+    }
+
+    /**
+     * @param metrics    the metrics to evaluate, the windows are passed in the same order
+     * @param timeBucket the period of the metric buckets, e.g. "PT1M"
+     * @param limits     the limits of 1 CKU of the metrics
+     * @throws UnsupportedOperationException if a metric has no limit
+     */
+    public ScalingPolicy(List<String> metrics, String timeBucket, CKULimits limits) {
+        this.metrics = metrics.toArray(new String[0]);
+        this.timeBucket = timeBucket;
+        this.aggregators = new String[this.metrics.length];
+        Arrays.fill(aggregators, Aggregator.ALL);
+        this.lowerBounds = new int[this.metrics.length];
+        this.upperBounds = new int[this.metrics.length];
+        this.targets = new int[this.metrics.length];
+        this.weights = new double[this.metrics.length];
+        thresholds(20, 50, 35);
+        this.bucketLimits = new double[this.metrics.length];
+        this.fractions = new boolean[this.metrics.length];
+        this.unlimited = new boolean[this.metrics.length];
+        this.hardLimits = new boolean[this.metrics.length];
+        limits(limits);
+    }
+
+    /**
+     * Replaces the limits of the metrics, e.g. with the ones of the cloud and the region of the cluster.
+     *
+     * @throws UnsupportedOperationException if a metric has no limit
+     */
+    public ScalingPolicy limits(CKULimits limits) {
+        for (int m = 0; m < metrics.length; m++) {
+            final var limit = limits.limit(metrics[m]);
+            bucketLimits[m] = limit.bucketLimit(timeBucket);
+            fractions[m] = limit.kind() == MetricLimit.Kind.LOAD_FRACTION;
+            unlimited[m] = limit.isUnlimited();
+            hardLimits[m] = limit.isHard() && !fractions[m] && !unlimited[m];
+        }
+        return this;
+    }
+
+    /**
+     * The bounds of all the metrics with the weight of 1, overriding the ones of the metrics.
+     *
+     * @param lowerBound        the utilisation in percent to scale in below
+     * @param upperBound        the utilisation in percent to scale out above
+     * @param targetUtilisation the utilisation in percent to resize the cluster for
+     */
+    public ScalingPolicy thresholds(int lowerBound, int upperBound, int targetUtilisation) {
+        for (int m = 0; m < metrics.length; m++) {
+            lowerBounds[m] = lowerBound;
+            upperBounds[m] = upperBound;
+            targets[m] = targetUtilisation;
+            weights[m] = 1;
+        }
+        this.weightedMetrics = metrics.length;
+        return this;
+    }
+
+    /**
+     * The bounds and the weight of a metric. The target utilisation keeps its relative position between the bounds,
+     * e.g. the middle of the new bounds if it was the middle of the global ones.
+     *
+     * @param lowerBound the utilisation in percent to scale in below, or null to keep the current one
+     * @param upperBound the utilisation in percent to scale out above, or null to keep the current one
+     * @param weight     the multiplier of the score of the metric, 0 to only report the metric
+     * @throws IllegalArgumentException if the bounds or the weight are not valid
+     */
+    public ScalingPolicy metricThresholds(String metric, Integer lowerBound, Integer upperBound, double weight) {
+        final var m = Arrays.asList(metrics).indexOf(metric);
+        if (m < 0) throw new IllegalArgumentException("Metric [" + metric + "] is not evaluated.");
+
+        final var lower = lowerBound != null ? lowerBound : lowerBounds[m];
+        final var upper = upperBound != null ? upperBound : upperBounds[m];
+        if (lower < 0 || lower >= upper) {
+            throw new IllegalArgumentException("Metric [" + metric + "] must have 0 <= lower < upper bound.");
+        }
+        if (weight < 0 || Double.isNaN(weight)) {
+            throw new IllegalArgumentException("Metric [" + metric + "] must have a non-negative weight.");
+        }
+
+        final var position = (double) (targets[m] - lowerBounds[m]) / (upperBounds[m] - lowerBounds[m]);
+        targets[m] = (int) Math.max(1, Math.round(lower + position * (upper - lower)));
+        lowerBounds[m] = lower;
+        upperBounds[m] = upper;
+        if (weights[m] > 0 != weight > 0) weightedMetrics += weight > 0 ? 1 : -1;
+        weights[m] = weight;
+        return this;
+    }
+
+    /**
+     * @param minCKU  the minimum size of the cluster
+     * @param maxCKU  the maximum size of the cluster
+     * @param maxStep the maximum number of CKU to add or remove at once
+     */
+    public ScalingPolicy size(int minCKU, int maxCKU, int maxStep) {
+        this.minCKU = minCKU;
+        this.maxCKU = maxCKU;
+        this.maxStep = maxStep;
+        return this;
+    }
+
+    /**
+     * @param periods the number of the latest buckets to aggregate
+     */
+    public ScalingPolicy evaluationPeriods(int periods) {
+        this.periods = periods;
+        return this;
+    }
+
+    /**
+     * @param defaultSpec the aggregator of the metrics, see {@link Aggregator}
+     * @param specs       the aggregators of the metrics keyed by the metric name, overriding the default one
+     * @throws IllegalArgumentException if an aggregator is not supported
+     */
+    public ScalingPolicy aggregators(String defaultSpec, Map<String, String> specs) {
+        for (int m = 0; m < metrics.length; m++) {
+            aggregators[m] = specs.getOrDefault(metrics[m], defaultSpec);
+            Aggregator.of(aggregators[m], periods, timeBucket);
+        }
+        return this;
+    }
+
+    /**
+     * @param schedules the minimum sizes for the time windows, applied the provisioning time ahead of the windows
+     *                  and bounded by the minimum and the maximum size
+     */
+    public ScalingPolicy schedules(List<Schedule> schedules) {
+        this.schedules = schedules.toArray(new Schedule[0]);
+        return this;
+    }
+
+    /**
+     * @param enabled            whether to scale out on the trend of the metrics
+     * @param periods            the number of the latest buckets to fit the trend to
+     * @param provisioningTimeMs how long a resize takes, i.e. how far ahead to forecast
+     */
+    public ScalingPolicy forecast(boolean enabled, int periods, long provisioningTimeMs) {
+        this.forecastEnabled = enabled;
+        this.forecastPeriods = periods;
+        this.provisioningTimeMs = provisioningTimeMs;
+        return this;
+    }
+
+    /**
+     * @param scaleOutCooldownMs the time after an action before the cluster is scaled out again
+     * @param scaleInCooldownMs  the time after an action before the cluster is scaled in again
+     */
+    public ScalingPolicy cooldowns(long scaleOutCooldownMs, long scaleInCooldownMs) {
+        this.scaleOutCooldownMs = scaleOutCooldownMs;
+        this.scaleInCooldownMs = scaleInCooldownMs;
+        return this;
+    }
+
+    String[] metrics() {
+        return metrics;
+    }
+
+    String[] aggregatorSpecs() {
+        return aggregators;
+    }
+
+    int lowerBound(int metric) {
+        return lowerBounds[metric];
+    }
+
+    int upperBound(int metric) {
+        return upperBounds[metric];
+    }
+
+    double weight(int metric) {
+        return weights[metric];
+    }
+
+    /**
+     * The aggregators of the metrics of a cluster, in the order of the metrics. They keep the latest buckets
+     * between the evaluations of the cluster.
+     */
+    public Aggregator[] newAggregators() {
+        final var result = new Aggregator[metrics.length];
+        for (int m = 0; m < metrics.length; m++) result[m] = Aggregator.of(aggregators[m], periods, timeBucket);
+        return result;
+    }
+
+    public int metricCount() {
+        return metrics.length;
+    }
+
+    public String metric(int i) {
+        return metrics[i];
+    }
+
+    /**
+     * Whether the metric is a fraction of the load of the cluster, so its utilisation does not depend on the size.
+     */
+    public boolean isLoadFraction(int metric) {
+        return fractions[metric];
+    }
+
+    /**
+     * The number of buckets the metric windows need to keep.
+     */
+    public int windowCapacity() {
+        var capacity = forecastEnabled ? Math.max(periods, forecastPeriods) : periods;
+        for (String aggregator : aggregators) {
+            capacity = Math.max(capacity, Aggregator.of(aggregator, periods, timeBucket).capacity());
+        }
+        return capacity;
+    }
+
+    public long provisioningTimeMs() {
+        return provisioningTimeMs;
+    }
+
+    /**
+     * Evaluates a cluster which is not being resized.
+     * <p>
+     * The utilisation of every metric is scored by its position between its own bounds, 0 at the lower bound
+     * and 100 at the upper one, multiplied by its weight. The capacity score of the cluster is the highest score
+     * of the metrics, so the most constrained metric drives the decision: the cluster is scaled out when
+     * the score is above 100 and scaled in when it is below 0, i.e. every weighted metric is below its lower bound.
+     * The cluster is resized so that no weighted metric exceeds its target utilisation, and is never scaled in
+     * below the size the peak of a metric with a hard limit needs, e.g. the partitions of the cluster.
+     * The active schedules raise the minimum size, so the cluster is scaled out ahead of a scheduled window
+     * even if the metrics are within the bounds.
+     *
+     * @param cku         the current size of the cluster
+     * @param windows     the samples of every metric in the order of the metrics, null if a metric is not available
+     * @param aggregators the aggregators of the cluster from {@link #newAggregators()}, fed the new samples
+     * @param state       the scaling state of the cluster, not modified
+     * @param now         the evaluation time
+     * @param out         the evaluation to write the outcome to
+     */
+    public void evaluate(int cku, MetricWindow[] windows, Aggregator[] aggregators, ScalingState state, long now,
+                         Evaluation out) {
+        out.reset(cku);
+
+        final var forecastAt = now + provisioningTimeMs;
+        var scaleOutScore = Long.MIN_VALUE; // the highest score of the metrics or their forecast
+        var scaleOutMetric = -1;
+        var scaleOutForecast = false;
+        var scaleInScore = Long.MIN_VALUE; // the highest score of the metrics if all are known
+        var scaleInMetric = -1;
+        var scaleInUtilisation = 0L;
+        var scaleInKnown = 0;
+        var expansionCKU = cku + 1;
+        var shrinkingCKU = 1;
+        var floorCKU = 1; // the size the hard limits need
+        var floorMetric = -1;
+
+        for (int m = 0; m < metrics.length; m++) {
+            final var window = windows[m];
+            if (window == null) continue;
+
+            final var size = window.size();
+            if (size > 0) out.utilisation(m, utilisation(m, cku, window.value(size - 1)));
+
+            if (hardLimits[m]) {
+                final var floor = floorCKU(window, Math.max(0, size - periods), bucketLimits[m]);
+                if (floor > floorCKU) {
+                    floorCKU = floor;
+                    floorMetric = m;
+                }
+            }
+
+            if (forecastEnabled) {
+                final var forecast = forecast(window, Math.max(0, size - forecastPeriods), forecastAt);
+                if (!Double.isNaN(forecast)) {
+                    final var predicted = utilisation(m, cku, forecast);
+                    final var score = score(m, predicted);
+                    out.forecast(m, predicted, score);
+                    if (weights[m] > 0 && score > scaleOutScore) {
+                        scaleOutScore = score;
+                        scaleOutMetric = m;
+                        scaleOutForecast = true;
+                    }
+                    if (weights[m] > 0 && score > 100) {
+                        expansionCKU = Math.max(expansionCKU, targetCKU(cku, predicted, targets[m]));
+                    }
+                }
+            }
+
+            final var aggregator = aggregators[m];
+            aggregator.update(window);
+            final var scaleOut = aggregator.scaleOutValue();
+            final var scaleIn = aggregator.scaleInValue();
+            if (!Double.isNaN(scaleOut)) {
+                final var high = utilisation(m, cku, scaleOut);
+                final var score = score(m, high);
+                out.aggregate(m, high, score);
+                if (weights[m] > 0 && (score > scaleOutScore || score == scaleOutScore && scaleOutForecast)) {
+                    scaleOutScore = score;
+                    scaleOutMetric = m;
+                    scaleOutForecast = false;
+                }
+                if (weights[m] > 0) expansionCKU = Math.max(expansionCKU, targetCKU(cku, high, targets[m]));
+            }
+            if (!Double.isNaN(scaleIn) && weights[m] > 0) {
+                final var low = utilisation(m, cku, scaleIn);
+                final var score = score(m, low);
+                if (score > scaleInScore) {
+                    scaleInScore = score;
+                    scaleInMetric = m;
+                    scaleInUtilisation = low;
+                }
+                shrinkingCKU = Math.max(shrinkingCKU, targetCKU(cku, low, targets[m]));
+                scaleInKnown++;
+            }
+        }
+        out.score(scaleOutScore);
+
+        var scheduledCKU = minCKU;
+        for (Schedule schedule : schedules) {
+            if (schedule.minCKU() > scheduledCKU && schedule.isActive(now, provisioningTimeMs)) {
+                scheduledCKU = schedule.minCKU();
+                out.schedule(schedule.name(), Math.min(scheduledCKU, maxCKU));
+            }
+        }
+        scheduledCKU = Math.min(scheduledCKU, maxCKU);
+
+        if (scaleOutScore > 100) {
+            out.trigger(scaleOutForecast ? Evaluation.Trigger.FORECAST_ABOVE_UPPER : Evaluation.Trigger.ABOVE_UPPER,
+                    scaleOutMetric, scaleOutForecast ? out.forecast(scaleOutMetric) : out.aggregate(scaleOutMetric),
+                    upperBounds[scaleOutMetric]);
+            if (cku >= maxCKU) {
+                out.hold(Evaluation.Constraint.MAX_SIZE);
+            } else if (state.inCooldown(EXPAND, scaleOutCooldownMs, scaleInCooldownMs, now)) {
+                out.hold(Evaluation.Constraint.SCALE_OUT_COOLDOWN);
+            } else {
+                final var target = Math.max(Math.min(expansionCKU, cku + maxStep), scheduledCKU);
+                out.decide(Evaluation.Decision.EXPAND, Math.min(target, maxCKU));
+            }
+        } else if (cku < scheduledCKU) {
+            out.trigger(Evaluation.Trigger.SCHEDULED, -1, 0, 0);
+            if (state.inCooldown(EXPAND, scaleOutCooldownMs, scaleInCooldownMs, now)) {
+                out.hold(Evaluation.Constraint.SCALE_OUT_COOLDOWN);
+            } else {
+                out.decide(Evaluation.Decision.EXPAND, scheduledCKU);
+            }
+        } else if (scaleInMetric >= 0 && scaleInKnown == weightedMetrics && scaleInScore < 0) {
+            out.trigger(Evaluation.Trigger.BELOW_LOWER, scaleInMetric, scaleInUtilisation, lowerBounds[scaleInMetric]);
+            if (cku <= minCKU) {
+                out.hold(Evaluation.Constraint.MIN_SIZE);
+            } else if (scheduledCKU >= cku) {
+                out.hold(Evaluation.Constraint.SCHEDULE);
+            } else if (floorCKU >= cku) {
+                out.floor(floorMetric, floorCKU);
+                out.hold(Evaluation.Constraint.CAPACITY_FLOOR);
+            } else if (state.inCooldown(SHRINK, scaleOutCooldownMs, scaleInCooldownMs, now)) {
+                out.hold(Evaluation.Constraint.SCALE_IN_COOLDOWN);
+            } else {
+                final var target = Math.max(Math.max(Math.min(cku - 1, shrinkingCKU), floorCKU), scheduledCKU);
+                out.decide(Evaluation.Decision.SHRINK, Math.max(Math.max(target, cku - maxStep), minCKU));
+            }
+        }
+    }
+
+    /**
+     * @return the weighted position of the utilisation between the bounds of the metric, 0 at the lower bound
+     * and 100 at the upper one
+     */
+    public long score(int metric, long utilisation) {
+        final var position = 100.0 * (utilisation - lowerBounds[metric]) / (upperBounds[metric] - lowerBounds[metric]);
+        return Math.round(position * weights[metric]);
+    }
+
+    /**
+     * @return the utilisation of a cluster of the given size in percent, 0 if the metric is unlimited
+     */
+    public long utilisation(int metric, int cku, double value) {
+        if (fractions[metric]) return (long) (value * 100);
+        return unlimited[metric] ? 0 : asPercent(cku, value, bucketLimits[metric]);
+    }
+
+    /**
+     * The number of CKU holding the peak of the samples of the window starting at the given position
+     * within the hard limit, e.g. 10000 partitions need 3 CKU.
+     */
+    static int floorCKU(MetricWindow window, int from, double bucketLimit) {
+        var peak = 0.0;
+        for (int i = from; i < window.size(); i++) peak = Math.max(peak, window.value(i));
+        return (int) Math.max(1, Math.ceil(peak / bucketLimit));
+    }
+
+    /**
+     * Fits a least squares line through the samples of the window starting at the given position
+     * and extrapolates it to the timestamp.
+     *
+     * @return the predicted metric value or NaN if there are not enough samples
+     */
+    public static double forecast(MetricWindow window, int from, long timestamp) {
+        final var n = window.size() - from;
+        if (n < 2) return Double.NaN;
+
+        final var origin = window.timestamp(from);
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = from; i < window.size(); i++) {
+            final double x = window.timestamp(i) - origin;
+            final var y = window.value(i);
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+
+        final var denominator = n * sumXX - sumX * sumX;
+        if (denominator == 0) return sumY / n;
+        final var slope = (n * sumXY - sumX * sumY) / denominator;
+        final var intercept = (sumY - slope * sumX) / n;
+        return Math.max(0, intercept + slope * (timestamp - origin));
+    }
+
+    /**
+     * The number of CKU bringing the utilisation to the target, e.g. 1 CKU at 150% is 3 CKU at 50%.
+     */
+    public static int targetCKU(int statusCKU, long utilisation, int targetUtilisation) {
+        return (int) Math.max(1, (statusCKU * utilisation + targetUtilisation - 1) / targetUtilisation);
+    }
+
+    static long asPercent(int statusCKU, double metricValue, double metricLimit) {
+        return (long) (100 * metricValue / (metricLimit * statusCKU));
+    }
+}
@@ -0,0 +1,115 @@
+package io.confluent.autoscaling.policy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The scaling state of a cluster: the last action, the resize in flight and the cooldowns.
+ * While a resize is in flight the cluster is read less and less often, up to the maximum backoff.
+ */
+public class ScalingState {
+
+    public enum Action {NONE, EXPAND, SHRINK}
+
+    private static final String ACTION = "action";
+    private static final String ACTION_TIME = "action.time";
+    private static final String SETTLED_TIME = "settled.time";
+    private static final String TARGET_CKU = "target.cku";
+    private static final String RESIZING = "resizing";
+
+    private Action lastAction = Action.NONE;
+    private long lastActionTime;
+    private long settledTime;
+    private int targetCKU;
+    private boolean resizing;
+    private long nextReadTime;
+    private long readBackoffMs;
+
+    public Action lastAction() {
+        return lastAction;
+    }
+
+    public long lastActionTime() {
+        return lastActionTime;
+    }
+
+    public int targetCKU() {
+        return targetCKU;
+    }
+
+    public boolean isResizing() {
+        return resizing;
+    }
+
+    public boolean isReadDue(long now) {
+        return now >= nextReadTime;
+    }
+
+    /**
+     * @return the time the cluster is read again while a resize is in progress
+     */
+    public long nextReadTime() {
+        return nextReadTime;
+    }
+
+    /**
+     * @param inFlight whether the cluster is actually being resized, i.e. it is not a dry run
+     */
+    public void onAction(Action action, int targetCKU, boolean inFlight, long now) {
+        this.lastAction = action;
+        this.lastActionTime = now;
+        this.targetCKU = targetCKU;
+        this.resizing = inFlight;
+    }
+
+    /**
+     * @return the delay until the cluster is read again
+     */
+    public long onResizeInProgress(long now, long pollIntervalMs, long maxBackoffMs) {
+        readBackoffMs = readBackoffMs == 0 ? pollIntervalMs : Math.min(readBackoffMs * 2, maxBackoffMs);
+        nextReadTime = now + readBackoffMs;
+        return readBackoffMs;
+    }
+
+    public void onResizeCompleted(long now) {
+        resizing = false;
+        settledTime = now;
+        readBackoffMs = 0;
+        nextReadTime = 0;
+    }
+
+    /**
+     * The state to store as the source offset of the cluster.
+     */
+    public Map<String, Object> toOffset() {
+        final var offset = new HashMap<String, Object>();
+        offset.put(ACTION, lastAction.name());
+        offset.put(ACTION_TIME, lastActionTime);
+        offset.put(SETTLED_TIME, settledTime);
+        offset.put(TARGET_CKU, targetCKU);
+        offset.put(RESIZING, resizing);
+        return offset;
+    }
+
+    /**
+     * Restores the state from the source offset of the cluster.
+     * The numbers may be read back as a different type depending on the offset store.
+     */
+    public void restore(Map<String, ?> offset) {
+        if (offset.get(ACTION) != null) lastAction = Action.valueOf((String) offset.get(ACTION));
+        if (offset.get(ACTION_TIME) != null) lastActionTime = ((Number) offset.get(ACTION_TIME)).longValue();
+        if (offset.get(SETTLED_TIME) != null) settledTime = ((Number) offset.get(SETTLED_TIME)).longValue();
+        if (offset.get(TARGET_CKU) != null) targetCKU = ((Number) offset.get(TARGET_CKU)).intValue();
+        if (offset.get(RESIZING) != null) resizing = (Boolean) offset.get(RESIZING);
+    }
+
+    /**
+     * The cooldowns start when the last action is taken or, if it resized the cluster, when the resize completes.
+     */
+    public boolean inCooldown(Action action, long scaleOutCooldownMs, long scaleInCooldownMs, long now) {
+        if (lastAction == Action.NONE) return false;
+        final var since = Math.max(lastActionTime, settledTime);
+        final var cooldown = action == Action.EXPAND ? scaleOutCooldownMs : scaleInCooldownMs;
+        return now - since < cooldown;
+    }
+}
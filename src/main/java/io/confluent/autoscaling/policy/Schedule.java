@@ -0,0 +1,50 @@
+package io.confluent.autoscaling.policy;
+
+/**
+ * The minimum size of a cluster for a time window starting at every match of a cron expression,
+ * e.g. 6 CKU for 2 hours at 01:00 for a nightly batch ingest.
+ */
+public class Schedule {
+
+    private final String name;
+    private final CronExpression cron;
+    private final long durationMs;
+    private final int minCKU;
+
+    /**
+     * @param cron       the start of the window
+     * @param durationMs the length of the window
+     * @param minCKU     the minimum size of the cluster during the window
+     */
+    public Schedule(String name, CronExpression cron, long durationMs, int minCKU) {
+        if (durationMs <= 0) throw new IllegalArgumentException("Schedule [" + name + "] must have a positive duration.");
+        if (minCKU < 1) throw new IllegalArgumentException("Schedule [" + name + "] must have at least 1 CKU.");
+        this.name = name;
+        this.cron = cron;
+        this.durationMs = durationMs;
+        this.minCKU = minCKU;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int minCKU() {
+        return minCKU;
+    }
+
+    /**
+     * Whether the window is active at the time or starts within the lead time, so the cluster has been resized
+     * by the start of the window.
+     *
+     * @param leadMs how long a resize takes
+     */
+    public boolean isActive(long now, long leadMs) {
+        return cron.latest(now - durationMs, now + leadMs) != Long.MIN_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + minCKU + " CKU at " + cron + " for " + durationMs + " ms";
+    }
+}
@@ -0,0 +1,131 @@
+package io.confluent.autoscaling.simulation;
+
+import io.confluent.autoscaling.policy.Evaluation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a simulation: the scaling actions, the time spent over capacity and the CKU-hours.
+ */
+public class SimulationReport {
+
+    /**
+     * A scaling action taken by the policy.
+     */
+    public static class Action {
+
+        private final long timestamp;
+        private final Evaluation.Decision decision;
+        private final int fromCKU;
+        private final int toCKU;
+        private final String reason;
+
+        Action(long timestamp, Evaluation.Decision decision, int fromCKU, int toCKU, String reason) {
+            this.timestamp = timestamp;
+            this.decision = decision;
+            this.fromCKU = fromCKU;
+            this.toCKU = toCKU;
+            this.reason = reason;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public Evaluation.Decision decision() {
+            return decision;
+        }
+
+        public int fromCKU() {
+            return fromCKU;
+        }
+
+        public int toCKU() {
+            return toCKU;
+        }
+
+        public String reason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(timestamp) + " " + decision + " " + fromCKU + " -> " + toCKU + " CKU, " + reason;
+        }
+    }
+
+    private final List<Action> actions = new ArrayList<>();
+    private long buckets;
+    private long firstTimestamp = Long.MAX_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long overCapacityMs;
+    private long ckuMs;
+    private int expansions;
+    private int shrinks;
+    private int finalCKU;
+
+    void onBucket(long timestamp, long bucketMs, int cku, boolean overCapacity) {
+        buckets++;
+        firstTimestamp = Math.min(firstTimestamp, timestamp);
+        lastTimestamp = Math.max(lastTimestamp, timestamp + bucketMs);
+        ckuMs += cku * bucketMs;
+        if (overCapacity) overCapacityMs += bucketMs;
+        finalCKU = cku;
+    }
+
+    void onAction(long timestamp, Evaluation evaluation) {
+        if (evaluation.decision() == Evaluation.Decision.EXPAND) expansions++;
+        if (evaluation.decision() == Evaluation.Decision.SHRINK) shrinks++;
+        actions.add(new Action(timestamp, evaluation.decision(), evaluation.currentCKU(), evaluation.targetCKU(),
+                evaluation.reason()));
+    }
+
+    public List<Action> actions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    public long buckets() {
+        return buckets;
+    }
+
+    public int expansions() {
+        return expansions;
+    }
+
+    public int shrinks() {
+        return shrinks;
+    }
+
+    /**
+     * The time any of the metrics was above the capacity of the provisioned cluster.
+     */
+    public long overCapacityMs() {
+        return overCapacityMs;
+    }
+
+    public double ckuHours() {
+        return ckuMs / 3_600_000.0;
+    }
+
+    /**
+     * The size of the cluster at the end of the simulation.
+     */
+    public int finalCKU() {
+        return finalCKU;
+    }
+
+    @Override
+    public String toString() {
+        if (buckets == 0) return "No buckets replayed";
+        return "Replayed " + buckets + " buckets from " + Instant.ofEpochMilli(firstTimestamp)
+                + " to " + Instant.ofEpochMilli(lastTimestamp) + "\n"
+                + "Scaling actions: " + actions.size() + " (" + expansions + " out, " + shrinks + " in)\n"
+                + "Time over capacity: " + Duration.ofMillis(overCapacityMs) + "\n"
+                + "CKU-hours: " + String.format("%.2f", ckuHours()) + "\n"
+                + "Final size: " + finalCKU + " CKU";
+    }
+}
@@ -0,0 +1,191 @@
+package io.confluent.autoscaling.simulation;
+
+import io.confluent.autoscaling.cloud.MetricWindow;
+import io.confluent.autoscaling.cloud.MetricsHandler;
+import io.confluent.autoscaling.connect.AutoScalingConfig;
+import io.confluent.autoscaling.policy.Aggregator;
+import io.confluent.autoscaling.policy.Evaluation;
+import io.confluent.autoscaling.policy.ScalingPolicy;
+import io.confluent.autoscaling.policy.ScalingState;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Properties;
+
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
+
+/**
+ * Replays recorded metrics through the scaling policy of the connector, so the thresholds can be tuned offline.
+ * A resize takes the provisioning time to complete, the capacity stays the same until then.
+ * <p>
+ * The metrics are read from a CSV file with a header, the first column is the bucket timestamp, either ISO-8601
+ * or epoch milliseconds, followed by a column per metric, e.g.
+ * <pre>
+ * timestamp,received_bytes,cluster_load_percent,cku
+ * 2022-04-21T15:10:00Z,4.686472769E9,0.42,2
+ * </pre>
+ * The optional `cku` column is the size of the cluster the metrics were recorded on, the initial size by default.
+ * It is used to rescale the metrics which are a fraction of the load, e.g. `cluster_load_percent`,
+ * to the size of the simulated cluster.
+ */
+public class Simulator {
+
+    private static final String TIMESTAMP_COLUMN = "timestamp";
+    private static final String CKU_COLUMN = "cku";
+
+    private final ScalingPolicy policy;
+    private final long bucketMs;
+    private final MetricWindow[] windows;
+    private final Aggregator[] aggregators;
+    private final boolean[] fractions;
+    private final int initialCKU;
+    private final ScalingState state = new ScalingState();
+    private final Evaluation evaluation;
+    private final SimulationReport report = new SimulationReport();
+    private int cku;
+    private int pendingCKU;
+    private long readyTime;
+
+    public Simulator(ScalingPolicy policy, String timeBucket, int initialCKU) {
+        this.policy = policy;
+        this.bucketMs = Duration.parse(timeBucket).toMillis();
+        this.windows = new MetricWindow[policy.metricCount()];
+        this.fractions = new boolean[policy.metricCount()];
+        for (int m = 0; m < windows.length; m++) {
+            windows[m] = new MetricWindow(policy.windowCapacity(), timeBucket);
+            fractions[m] = policy.isLoadFraction(m);
+        }
+        this.aggregators = policy.newAggregators();
+        this.evaluation = new Evaluation(policy);
+        this.initialCKU = initialCKU;
+        this.cku = initialCKU;
+    }
+
+    /**
+     * Replays a bucket, the buckets are expected in order. The policy is evaluated once the bucket closes.
+     *
+     * @param timestamp   the start of the bucket
+     * @param recordedCKU the size of the cluster the metrics were recorded on
+     * @param values      the value of every metric in the order of the policy metrics, NaN if missing
+     */
+    public void replay(long timestamp, int recordedCKU, double[] values) {
+        if (state.isResizing() && timestamp >= readyTime) {
+            cku = pendingCKU;
+            state.onResizeCompleted(readyTime);
+        }
+
+        var overCapacity = false;
+        for (int m = 0; m < windows.length; m++) {
+            if (Double.isNaN(values[m])) continue;
+            final var value = fractions[m] ? values[m] * recordedCKU / cku : values[m];
+            windows[m].add(timestamp, value);
+            if (policy.utilisation(m, cku, value) > 100) overCapacity = true;
+        }
+        report.onBucket(timestamp, bucketMs, cku, overCapacity);
+
+        if (state.isResizing()) return;
+
+        final var now = timestamp + bucketMs;
+        policy.evaluate(cku, windows, aggregators, state, now, evaluation);
+        final var decision = evaluation.decision();
+        if (decision != Evaluation.Decision.HOLD) {
+            final var action = decision == Evaluation.Decision.EXPAND
+                    ? ScalingState.Action.EXPAND : ScalingState.Action.SHRINK;
+            state.onAction(action, evaluation.targetCKU(), true, now);
+            pendingCKU = evaluation.targetCKU();
+            readyTime = now + policy.provisioningTimeMs();
+            report.onAction(now, evaluation);
+        }
+    }
+
+    public SimulationReport report() {
+        return report;
+    }
+
+    /**
+     * Replays the metrics of the CSV file, see the class description for the format.
+     */
+    public SimulationReport replay(Reader csv) throws IOException {
+        final var reader = new BufferedReader(csv);
+        final var header = reader.readLine();
+        if (header == null) return report;
+
+        final var columns = header.split(",");
+        if (!TIMESTAMP_COLUMN.equals(columns[0].trim())) {
+            throw new IllegalArgumentException("The first column must be the [" + TIMESTAMP_COLUMN + "].");
+        }
+        final var indexes = new HashMap<String, Integer>();
+        for (int i = 1; i < columns.length; i++) indexes.put(columns[i].trim(), i);
+
+        final var metricColumns = new int[windows.length];
+        for (int m = 0; m < windows.length; m++) {
+            final var index = indexes.get(policy.metric(m));
+            if (index == null) {
+                throw new IllegalArgumentException("Metric [" + policy.metric(m) + "] is missing in the CSV header.");
+            }
+            metricColumns[m] = index;
+        }
+        final var ckuColumn = indexes.getOrDefault(CKU_COLUMN, -1);
+
+        final var values = new double[windows.length];
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            final var fields = line.split(",", -1);
+            for (int m = 0; m < values.length; m++) {
+                final var field = fields[metricColumns[m]].trim();
+                values[m] = field.isEmpty() ? Double.NaN : Double.parseDouble(field);
+            }
+            final var recordedCKU = ckuColumn < 0 ? initialCKU : Integer.parseInt(fields[ckuColumn].trim());
+            replay(parseTimestamp(fields[0].trim()), recordedCKU, values);
+        }
+        return report;
+    }
+
+    static long parseTimestamp(String str) {
+        return !str.isEmpty() && Character.isDigit(str.charAt(str.length() - 1))
+                ? Long.parseLong(str) : MetricsHandler.parseTimestamp(str);
+    }
+
+    /**
+     * Usage: Simulator connect-auto-scaling.properties metrics.csv [initial CKU]
+     * <p>
+     * The policy is configured with the connector configuration, the credentials and clusters are not needed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Simulator <connector.properties> <metrics.csv> [initial CKU]");
+            System.exit(1);
+        }
+
+        final var properties = new Properties();
+        try (var reader = new FileReader(args[0])) {
+            properties.load(reader);
+        }
+        final var props = new HashMap<String, Object>();
+        properties.stringPropertyNames().forEach(name -> props.put(name, properties.getProperty(name)));
+        for (var key : new String[]{CLOUD_KEY, CLOUD_SECRET, ENVIRONMENT, CLUSTERS, INTERVAL}) {
+            props.putIfAbsent(key, "");
+        }
+        props.putIfAbsent(POLL_INTERVAL_MS, "0");
+        final var config = new AutoScalingConfig(props);
+
+        final var initialCKU = args.length > 2 ? Integer.parseInt(args[2]) : config.getInt(MIN_SIZE);
+        final var simulator = new Simulator(config.scalingPolicy(), config.getString(PERIOD), initialCKU);
+
+        final var started = System.nanoTime();
+        final SimulationReport report;
+        try (var reader = new FileReader(args[1])) {
+            report = simulator.replay(reader);
+        }
+        final var elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        report.actions().forEach(System.out::println);
+        System.out.println(report);
+        System.out.println("Simulated in " + elapsedMs + " ms");
+    }
+}
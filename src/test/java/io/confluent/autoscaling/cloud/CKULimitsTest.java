@@ -0,0 +1,80 @@
+package io.confluent.autoscaling.cloud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CKULimitsTest {
+
+    @Test
+    void convertsTheLimitsToBuckets() {
+        final var limits = CKULimits.defaults();
+
+        assertThat(limits.limit(CKULimits.RECEIVED_BYTES).bucketLimit("PT5M")).isEqualTo(50L * 1024 * 1024 * 300);
+        assertThat(limits.limit(CKULimits.PARTITION_COUNT).bucketLimit("PT5M")).isEqualTo(4500);
+        assertThat(limits.limit(CKULimits.CONNECTION_COUNT).kind()).isEqualTo(MetricLimit.Kind.GAUGE);
+        assertThat(limits.limit(CKULimits.CLUSTER_LOAD_PERCENT).bucketLimit("PT5M")).isZero();
+        assertThat(limits.limit(CKULimits.RETAINED_BYTES).isUnlimited()).isTrue();
+        assertThatThrownBy(() -> limits.limit("unknown")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void comparesTheConnectionsWithTheLimitInAnyBucket() {
+        final var limit = CKULimits.defaults().limit(CKULimits.CONNECTION_COUNT);
+
+        // 4500 connections on 1 CKU are half of the limit, whatever the length of the bucket
+        assertThat(100 * 4500 / limit.bucketLimit("PT1M")).isEqualTo(50);
+        assertThat(100 * 4500 / limit.bucketLimit("PT5M")).isEqualTo(50);
+    }
+
+    @Test
+    void appliesTheMostSpecificLimit() {
+        final var settings = Map.of(
+                "partition_count", "4000",
+                "partition_count.aws.*.multi_zone", "3500",
+                "partition_count.AWS.eu-west-2.*", "3000",
+                "partition_count.aws.eu-west-2.multi_zone", "2500");
+
+        assertThat(limit(settings, "GCP", "europe-west2", "MULTI_ZONE")).isEqualTo(4000);
+        assertThat(limit(settings, "AWS", "us-east-1", "MULTI_ZONE")).isEqualTo(3500);
+        assertThat(limit(settings, "AWS", "eu-west-2", "SINGLE_ZONE")).isEqualTo(3000);
+        assertThat(limit(settings, "AWS", "eu-west-2", "MULTI_ZONE")).isEqualTo(2500);
+        assertThat(limit(settings, null, null, null)).isEqualTo(4000);
+    }
+
+    @Test
+    void registersNewMetrics() {
+        final var limits = CKULimits.defaults().configure(Map.of(
+                "retained_bytes", "5e12",
+                "retained_bytes.hard", "true",
+                "producer_count.kind", "gauge",
+                "producer_count", "1000"), null, null, null);
+
+        assertThat(limits.limit(CKULimits.RETAINED_BYTES).isHard()).isTrue();
+        assertThat(limits.limit(CKULimits.RETAINED_BYTES).bucketLimit("PT1M")).isEqualTo(5_000_000_000_000L);
+        assertThat(limits.limit("producer_count").kind()).isEqualTo(MetricLimit.Kind.GAUGE);
+        assertThat(limits.limit("producer_count").bucketLimit("PT1H")).isEqualTo(1000);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        final var limits = CKULimits.defaults();
+
+        assertThatThrownBy(() -> limits.configure(Map.of("partition_count", "many"), null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limits.configure(Map.of("partition_count.aws.*.*", "-1"), null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limits.configure(Map.of("partition_count.aws", "1"), null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limits.configure(Map.of("x.kind", "counter"), null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double limit(Map<String, String> settings, String cloud, String region, String availability) {
+        return CKULimits.defaults().configure(settings, cloud, region, availability)
+                .limit(CKULimits.PARTITION_COUNT).limit();
+    }
+}
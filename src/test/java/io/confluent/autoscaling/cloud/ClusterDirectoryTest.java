@@ -0,0 +1,71 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClusterDirectoryTest {
+
+    private final MockConfluentCloud cloud = new MockConfluentCloud();
+    private final MockWebServer server = cloud.server();
+    private ClusterDirectory directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+        IntStream.range(0, 250).forEach(i -> cloud.addCluster("lkc-" + i, "env-1", 1, ts -> 0.5));
+        cloud.addCluster("lkc-other", "env-2", 2, ts -> 0.5);
+        cloud.addCluster("lkc-ignored", "env-3", 1, ts -> 0.5);
+
+        final var url = server.url("/").toString();
+        directory = new ClusterDirectory(new OkHttpClient(), url.substring(0, url.length() - 1), "key", "secret",
+                List.of("env-1", "env-2"), 60_000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void listsThePagesOfTheEnvironments() throws Exception {
+        final var clusters = directory.clusters(0);
+
+        assertThat(clusters).hasSize(251).containsKeys("lkc-0", "lkc-249", "lkc-other").doesNotContainKey("lkc-ignored");
+        assertThat(clusters.get("lkc-other").getAsJsonObject("status").get("cku").getAsInt()).isEqualTo(2);
+        // 3 pages of the first environment and 1 of the second
+        assertThat(cloud.requests("list-clusters")).isEqualTo(4);
+    }
+
+    @Test
+    void cachesTheListingForTheTtl() throws Exception {
+        directory.cluster("lkc-1", 0);
+        directory.cluster("lkc-2", 59_999);
+        assertThat(cloud.requests("list-clusters")).isEqualTo(4);
+
+        cloud.removeCluster("lkc-2");
+        assertThatThrownBy(() -> directory.cluster("lkc-2", 60_000)).isInstanceOf(RequestException.class);
+        assertThat(cloud.requests("list-clusters")).isEqualTo(8);
+        assertThat(cloud.requests("read-cluster")).isZero();
+    }
+
+    @Test
+    void replacesTheUpdatedCluster() throws Exception {
+        final var cluster = directory.cluster("lkc-1", 0).deepCopy();
+        cluster.getAsJsonObject("spec").getAsJsonObject("config").addProperty("cku", 3);
+        directory.update(cluster);
+
+        final var cached = directory.cluster("lkc-1", 1);
+        assertThat(cached.getAsJsonObject("spec").getAsJsonObject("config").get("cku").getAsInt()).isEqualTo(3);
+        assertThat(cached.getAsJsonObject("status").get("cku").getAsInt()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,97 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpClientFactoryTest {
+
+    private final MockWebServer server = new MockWebServer();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void sharesTheClientBetweenEqualSettings() {
+        final var client = HttpClientFactory.sharedClient(new HttpClientFactory.Settings().timeouts(1_001, 2_001));
+
+        assertThat(HttpClientFactory.sharedClient(new HttpClientFactory.Settings().timeouts(1_001, 2_001)))
+                .isSameAs(client);
+        assertThat(HttpClientFactory.sharedClient(new HttpClientFactory.Settings().timeouts(1_001, 2_002)))
+                .isNotSameAs(client);
+        assertThat(HttpClientFactory.sharedClient(new HttpClientFactory.Settings().timeouts(1_001, 2_001)
+                .circuitBreaker(7, 60_000))).isNotSameAs(client);
+    }
+
+    @Test
+    void appliesTheSettings() {
+        final var client = HttpClientFactory.sharedClient(new HttpClientFactory.Settings()
+                .http2(false)
+                .timeouts(1_002, 2_003)
+                .maxRequestsPerHost(3)
+                .retries(0, 100, 1000));
+
+        assertThat(client.protocols()).containsExactly(Protocol.HTTP_1_1);
+        assertThat(client.connectTimeoutMillis()).isEqualTo(1_002);
+        assertThat(client.readTimeoutMillis()).isEqualTo(2_003);
+        assertThat(client.writeTimeoutMillis()).isEqualTo(2_003);
+        assertThat(client.dispatcher().getMaxRequestsPerHost()).isEqualTo(3);
+        assertThat(client.interceptors()).hasOnlyElementsOfType(RetryInterceptor.class).hasSize(1);
+
+        final var defaults = HttpClientFactory.sharedClient(new HttpClientFactory.Settings().timeouts(1_003, 2_003));
+        assertThat(defaults.protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        assertThat(defaults.dispatcher().getMaxRequestsPerHost()).isEqualTo(10);
+    }
+
+    @Test
+    void keepsTheIdleConnectionsWithinThePool() throws Exception {
+        final var client = HttpClientFactory.sharedClient(new HttpClientFactory.Settings()
+                .connectionPool(1, 1_000)
+                .timeouts(1_004, 2_004));
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse().setBody("{}").setBodyDelay(200, TimeUnit.MILLISECONDS));
+        }
+
+        // two concurrent calls open two connections, only one of them is kept idle
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> call(client)),
+                CompletableFuture.runAsync(() -> call(client))).get(5, TimeUnit.SECONDS);
+        awaitConnections(client, 1, 500);
+        assertThat(client.connectionPool().connectionCount()).isEqualTo(1);
+
+        // and only for the keep-alive
+        awaitConnections(client, 0, 3_000);
+        assertThat(client.connectionPool().connectionCount()).isZero();
+    }
+
+    private void call(OkHttpClient client) {
+        try (var response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute()) {
+            assertThat(response.body().string()).isEqualTo("{}");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void awaitConnections(OkHttpClient client, int count, long timeoutMs) throws InterruptedException {
+        final var deadline = System.currentTimeMillis() + timeoutMs;
+        while (client.connectionPool().connectionCount() > count && System.currentTimeMillis() < deadline) Thread.sleep(20);
+    }
+}
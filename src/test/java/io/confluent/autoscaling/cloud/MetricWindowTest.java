@@ -0,0 +1,45 @@
+package io.confluent.autoscaling.cloud;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricWindowTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void keepsLatestBucketsOnly() {
+        final var window = new MetricWindow(3, "PT1M");
+        for (int i = 1; i <= 5; i++) window.add(i * MINUTE, i);
+
+        assertThat(window.size()).isEqualTo(3);
+        assertThat(window.value(0)).isEqualTo(3.0);
+        assertThat(window.lastTimestamp()).isEqualTo(5 * MINUTE);
+    }
+
+    @Test
+    void refreshesKnownBucketAndOrdersLateSamples() {
+        final var window = new MetricWindow(3, "PT1M");
+        window.add(3 * MINUTE, 3);
+        window.add(1 * MINUTE, 1);
+        window.add(3 * MINUTE, 30);
+        window.add(2 * MINUTE, 2);
+
+        assertThat(window.size()).isEqualTo(3);
+        assertThat(window.timestamp(0)).isEqualTo(MINUTE);
+        assertThat(window.value(1)).isEqualTo(2.0);
+        assertThat(window.value(2)).isEqualTo(30.0);
+    }
+
+    @Test
+    void evictsSamplesBeyondHorizon() {
+        final var window = new MetricWindow(3, "PT1M");
+        window.add(1 * MINUTE, 1);
+        window.add(2 * MINUTE, 2);
+        window.add(10 * MINUTE, 10);
+
+        assertThat(window.size()).isEqualTo(1);
+        assertThat(window.nextInterval("now-2h|h/now")).isEqualTo("1970-01-01T00:10:00Z/now");
+    }
+}
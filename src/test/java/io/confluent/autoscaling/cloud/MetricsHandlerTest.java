@@ -0,0 +1,81 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsHandlerTest {
+
+    private static final String RESPONSE = "{\"data\":[" +
+            "{\"timestamp\":\"2022-04-21T15:10:00Z\",\"value\":1574.0}," +
+            "{\"timestamp\":\"2022-04-21T15:11:00Z\",\"value\":0.0}," +
+            "{\"timestamp\":\"2022-04-21T15:12:00Z\",\"value\":4.686472769E9}," +
+            "{\"timestamp\":\"2022-04-21T15:13:00Z\",\"value\":16359.0}]," +
+            "\"meta\":{\"pagination\":{\"page_size\":100}}}";
+
+    @Test
+    void parsesTheTailOfTheResponse() throws Exception {
+        final var window = new MetricWindow(2, "PT1M");
+        MetricsHandler.parse(new StringReader(RESPONSE), window);
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.timestamp(0)).isEqualTo(Instant.parse("2022-04-21T15:12:00Z").toEpochMilli());
+        assertThat(window.value(0)).isEqualTo(4.686472769E9);
+        assertThat(window.value(1)).isEqualTo(16359.0);
+    }
+
+    @Test
+    void readsTheOtherMetricsWhenOneFails() throws Exception {
+        try (var server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @NotNull
+                @Override
+                public MockResponse dispatch(@NotNull RecordedRequest request) {
+                    final var body = request.getBody().readUtf8();
+                    if (body.contains("sent_bytes")) return new MockResponse().setResponseCode(400);
+                    // the first metric responds last
+                    final var delayMs = body.contains("received_bytes") ? 200 : 0;
+                    return new MockResponse().setBody(RESPONSE).setHeadersDelay(delayMs, TimeUnit.MILLISECONDS);
+                }
+            });
+            server.start();
+            final var url = server.url("/").toString();
+            final var handler = new MetricsHandler(new OkHttpClient(), url.substring(0, url.length() - 1),
+                    "key", "secret", "lkc-1");
+
+            final var windows = new LinkedHashMap<String, MetricWindow>();
+            for (var metric : new String[]{"received_bytes", "sent_bytes", "cluster_load_percent"}) {
+                windows.put(metric, new MetricWindow(2, "PT1M"));
+            }
+            final var responses = handler.readMetrics(windows, "PT1M", "now-10m|m/now");
+
+            assertThat(responses.keySet()).containsExactly("received_bytes", "sent_bytes", "cluster_load_percent");
+            assertThat(MetricsHandler.await(responses.get("received_bytes")).lastTimestamp())
+                    .isEqualTo(Instant.parse("2022-04-21T15:13:00Z").toEpochMilli());
+            assertThat(MetricsHandler.await(responses.get("cluster_load_percent")).size()).isEqualTo(2);
+            assertThatThrownBy(() -> MetricsHandler.await(responses.get("sent_bytes")))
+                    .isInstanceOf(RequestException.class);
+            assertThat(windows.get("sent_bytes").isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void parsesTimestamps() {
+        for (var str : new String[]{"1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z", "2022-04-21T15:10:00Z",
+                "2100-03-01T00:00:00Z", "2022-04-21T15:10:00.000Z"}) {
+            assertThat(MetricsHandler.parseTimestamp(str)).isEqualTo(Instant.parse(str).toEpochMilli());
+        }
+    }
+}
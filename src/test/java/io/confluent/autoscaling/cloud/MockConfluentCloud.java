@@ -0,0 +1,346 @@
+package io.confluent.autoscaling.cloud;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import javax.net.ServerSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A stand-in for the Confluent Cloud APIs to serve from a MockWebServer: the `cmk/v2/clusters` endpoints,
+ * including the paged listing, and the Telemetry query. The clusters keep their size, which converges to the requested one after
+ * the provisioning delay, and report the metrics generated from their load curves.
+ * Latency, 5xx and 429 responses can be injected.
+ */
+public class MockConfluentCloud extends Dispatcher {
+
+    /**
+     * The load of a cluster at the given time in the fraction of the capacity of 1 CKU, e.g. 1.5 is 150% of 1 CKU.
+     */
+    public interface LoadCurve {
+        double load(long timestamp);
+    }
+
+    public static class Cluster {
+
+        private final String id;
+        private final String environment;
+        private final LoadCurve load;
+        private int statusCKU;
+        private int configCKU;
+        private long resizedAt;
+
+        Cluster(String id, String environment, int cku, LoadCurve load) {
+            this.id = id;
+            this.environment = environment;
+            this.load = load;
+            this.statusCKU = cku;
+            this.configCKU = cku;
+        }
+
+        public synchronized int statusCKU() {
+            return statusCKU;
+        }
+
+        public synchronized int configCKU() {
+            return configCKU;
+        }
+
+        synchronized void converge(long now) {
+            if (statusCKU != configCKU && now >= resizedAt) statusCKU = configCKU;
+        }
+
+        synchronized void resize(int cku, long resizedAt) {
+            this.configCKU = cku;
+            this.resizedAt = resizedAt;
+        }
+
+        synchronized JsonObject toJson() {
+            final var config = new JsonObject();
+            config.addProperty("cku", configCKU);
+            config.addProperty("kind", "Dedicated");
+            final var env = new JsonObject();
+            env.addProperty("id", environment);
+            final var spec = new JsonObject();
+            spec.addProperty("availability", "SINGLE_ZONE");
+            spec.addProperty("cloud", "AWS");
+            spec.addProperty("region", "eu-west-2");
+            spec.addProperty("display_name", id);
+            spec.add("config", config);
+            spec.add("environment", env);
+            final var status = new JsonObject();
+            status.addProperty("cku", statusCKU);
+            status.addProperty("phase", statusCKU == configCKU ? "PROVISIONED" : "PROVISIONING");
+            final var json = new JsonObject();
+            json.addProperty("api_version", "cmk/v2");
+            json.addProperty("id", id);
+            json.addProperty("kind", "Cluster");
+            json.add("spec", spec);
+            json.add("status", status);
+            return json;
+        }
+    }
+
+    private static final Pattern CLUSTER_PATH = Pattern.compile("/cmk/v2/clusters/([^/?]+).*");
+    private static final String LIST_PATH = "/cmk/v2/clusters?";
+    private static final String NEXT_PAGE = "https://api.confluent.cloud/cmk/v2/clusters?environment=%s&page_size=%d&page_token=%d";
+    private static final Pattern RELATIVE_INTERVAL = Pattern.compile("now-(\\d+)([mhd])(?:\\|([mhd]))?/now");
+    private static final String METRIC_PREFIX = "io.confluent.kafka.server/";
+    private static final CKULimits LIMITS = CKULimits.defaults();
+
+    private final Map<String, Cluster> clusters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private volatile long provisioningDelayMs;
+    private volatile long latencyMs;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    public MockConfluentCloud addCluster(String id, String environment, int cku, LoadCurve load) {
+        clusters.put(id, new Cluster(id, environment, cku, load));
+        return this;
+    }
+
+    public MockConfluentCloud removeCluster(String id) {
+        clusters.remove(id);
+        return this;
+    }
+
+    /**
+     * Resizes a cluster as if it was requested outside the connector, e.g. from the Confluent Cloud Console.
+     */
+    public MockConfluentCloud resizeCluster(String id, int cku) {
+        clusters.get(id).resize(cku, System.currentTimeMillis() + provisioningDelayMs);
+        return this;
+    }
+
+    /**
+     * @param provisioningDelayMs how long it takes the size of a cluster to converge after a PATCH
+     */
+    public MockConfluentCloud provisioningDelay(long provisioningDelayMs) {
+        this.provisioningDelayMs = provisioningDelayMs;
+        return this;
+    }
+
+    /**
+     * @param latencyMs the delay before the response headers are sent
+     */
+    public MockConfluentCloud latency(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /**
+     * @param errorRate    the fraction of the requests failing with 503
+     * @param throttleRate the fraction of the requests throttled with 429
+     */
+    public MockConfluentCloud failures(double errorRate, double throttleRate) {
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        return this;
+    }
+
+    /**
+     * A server dispatching to this stand-in. The accepted sockets disable Nagle's algorithm, as the server writes
+     * the headers and the body of a response separately, which otherwise delays every response by a delayed ACK.
+     * The server does not log every request, so the logging does not throttle the load.
+     */
+    public MockWebServer server() {
+        java.util.logging.Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+        final var server = new MockWebServer();
+        server.setDispatcher(this);
+        server.setServerSocketFactory(new ServerSocketFactory() {
+            @Override
+            public ServerSocket createServerSocket() throws IOException {
+                return new ServerSocket() {
+                    @Override
+                    public Socket accept() throws IOException {
+                        final var socket = super.accept();
+                        socket.setTcpNoDelay(true);
+                        return socket;
+                    }
+                };
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog, InetAddress address) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        return server;
+    }
+
+    public Cluster cluster(String id) {
+        final var cluster = clusters.get(id);
+        cluster.converge(System.currentTimeMillis());
+        return cluster;
+    }
+
+    /**
+     * @param endpoint one of `list-clusters`, `read-cluster`, `update-cluster`, `query-metric`
+     * @return the number of the requests received, including the failed ones
+     */
+    public long requests(String endpoint) {
+        final var counter = requests.get(endpoint);
+        return counter == null ? 0 : counter.get();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        final var path = request.getPath() == null ? "" : request.getPath();
+        final var endpoint = path.startsWith("/v2/metrics/") ? "query-metric"
+                : path.startsWith(LIST_PATH) ? "list-clusters"
+                : "PATCH".equals(request.getMethod()) ? "update-cluster" : "read-cluster";
+        requests.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+
+        final var random = ThreadLocalRandom.current().nextDouble();
+        final MockResponse response;
+        if (random < throttleRate) {
+            response = new MockResponse().setResponseCode(429).setHeader("Retry-After", "0");
+        } else if (random < throttleRate + errorRate) {
+            response = new MockResponse().setResponseCode(503);
+        } else if (endpoint.equals("query-metric")) {
+            response = queryMetric(request.getBody().readUtf8());
+        } else if (endpoint.equals("list-clusters")) {
+            response = listClusters(request);
+        } else {
+            response = cluster(request, path);
+        }
+        return response.setHeadersDelay(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private MockResponse cluster(RecordedRequest request, String path) {
+        final var matcher = CLUSTER_PATH.matcher(path);
+        final var cluster = matcher.matches() ? clusters.get(matcher.group(1)) : null;
+        if (cluster == null) return new MockResponse().setResponseCode(404);
+
+        final var now = System.currentTimeMillis();
+        if ("PATCH".equals(request.getMethod())) {
+            final var body = JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+            final var cku = body.getAsJsonObject("spec").getAsJsonObject("config").get("cku").getAsInt();
+            cluster.resize(cku, now + provisioningDelayMs);
+        }
+        cluster.converge(now);
+        return json(cluster.toJson().toString());
+    }
+
+    /**
+     * The clusters of the environment ordered by the ID, a page at a time. The next page is linked
+     * with the public API URL, as the real API does.
+     */
+    private MockResponse listClusters(RecordedRequest request) {
+        final var url = request.getRequestUrl();
+        final var environment = url.queryParameter("environment");
+        final var pageSize = url.queryParameter("page_size") == null ? 10 : Integer.parseInt(url.queryParameter("page_size"));
+        final var offset = url.queryParameter("page_token") == null ? 0 : Integer.parseInt(url.queryParameter("page_token"));
+        final var listed = clusters.values().stream()
+                .filter(cluster -> cluster.environment.equals(environment))
+                .sorted(Comparator.comparing(cluster -> cluster.id))
+                .collect(Collectors.toList());
+
+        final var now = System.currentTimeMillis();
+        final var data = new JsonArray();
+        listed.stream().skip(offset).limit(pageSize).forEach(cluster -> {
+            cluster.converge(now);
+            data.add(cluster.toJson());
+        });
+        final var metadata = new JsonObject();
+        if (offset + pageSize < listed.size()) {
+            metadata.addProperty("next", String.format(NEXT_PAGE, environment, pageSize, offset + pageSize));
+        }
+        final var response = new JsonObject();
+        response.addProperty("api_version", "cmk/v2");
+        response.addProperty("kind", "ClusterList");
+        response.add("metadata", metadata);
+        response.add("data", data);
+        return json(response.toString());
+    }
+
+    private MockResponse queryMetric(String requestBody) {
+        final var body = JsonParser.parseString(requestBody).getAsJsonObject();
+        final var metric = body.getAsJsonArray("aggregations").get(0).getAsJsonObject()
+                .get("metric").getAsString().substring(METRIC_PREFIX.length());
+        final var cluster = clusters.get(body.getAsJsonObject("filter").get("value").getAsString());
+        if (cluster == null) return json("{\"data\":[]}");
+
+        final var now = System.currentTimeMillis();
+        cluster.converge(now);
+        final var bucketMs = Duration.parse(body.get("granularity").getAsString()).toMillis();
+        final var start = start(body.getAsJsonArray("intervals").get(0).getAsString(), now);
+
+        final var data = new JsonArray();
+        for (long ts = start - Math.floorMod(start, bucketMs); ts <= now; ts += bucketMs) {
+            final var point = new JsonObject();
+            point.addProperty("timestamp", Instant.ofEpochMilli(ts).toString());
+            point.addProperty("value", value(metric, cluster.load.load(ts), cluster.statusCKU(), bucketMs));
+            data.add(point);
+        }
+        final var response = new JsonObject();
+        response.add("data", data);
+        return json(response.toString());
+    }
+
+    /**
+     * The metric value of the load, consistent with the default limits of 1 CKU.
+     */
+    private static double value(String metric, double load, int cku, long bucketMs) {
+        final var limit = LIMITS.limit(metric);
+        return switch (limit.kind()) {
+            case RATE -> load * limit.limit() * (bucketMs / 1000);
+            case GAUGE -> load * limit.limit();
+            case LOAD_FRACTION -> load / cku;
+        };
+    }
+
+    /**
+     * The start of the interval, either `2022-04-21T15:10:00Z/now` or relative as `now-2h|h/now`.
+     */
+    static long start(String interval, long now) {
+        final var matcher = RELATIVE_INTERVAL.matcher(interval);
+        if (matcher.matches()) {
+            final var start = now - Long.parseLong(matcher.group(1)) * unitMs(matcher.group(2));
+            return matcher.group(3) == null ? start : start - Math.floorMod(start, unitMs(matcher.group(3)));
+        }
+        return Instant.parse(interval.substring(0, interval.indexOf('/'))).toEpochMilli();
+    }
+
+    private static long unitMs(String unit) {
+        return switch (unit) {
+            case "m" -> 60_000L;
+            case "h" -> 3_600_000L;
+            default -> 86_400_000L;
+        };
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
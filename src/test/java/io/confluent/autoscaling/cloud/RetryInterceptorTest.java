@@ -0,0 +1,145 @@
+package io.confluent.autoscaling.cloud;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryInterceptorTest {
+
+    private final MockWebServer server = new MockWebServer();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void retriesServerErrorsAndTooManyRequests() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try (var response = call(client(3, 5))) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void returnsTheLastResponseWhenRetriesAreExhausted() throws IOException {
+        for (int i = 0; i < 3; i++) server.enqueue(new MockResponse().setResponseCode(500));
+
+        try (var response = call(client(2, 5))) {
+            assertThat(response.code()).isEqualTo(500);
+        }
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void opensTheCircuitAfterConsecutiveFailures() throws IOException {
+        for (int i = 0; i < 2; i++) server.enqueue(new MockResponse().setResponseCode(500));
+
+        final var client = client(1, 2);
+        call(client).close();
+
+        assertThatThrownBy(() -> call(client)).isInstanceOf(CircuitOpenException.class);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void backsOffTheAsynchronousCallsWithoutHoldingTheDispatcher() {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("{}"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        final var client = client(1, 5, 2000);
+        client.dispatcher().setMaxRequestsPerHost(1);
+        final var start = System.currentTimeMillis();
+        final var throttled = AsyncCall.enqueue(client, request(), Response::code);
+        waitForRequests(1);
+        final var other = AsyncCall.enqueue(client, request(), Response::code);
+
+        // the other call is sent while the throttled one backs off
+        assertThat(other.join()).isEqualTo(200);
+        assertThat(System.currentTimeMillis() - start).isLessThan(900);
+        assertThat(throttled.join()).isEqualTo(200);
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotRetryACancelledAsynchronousCall() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "1"));
+
+        final var call = AsyncCall.enqueue(client(1, 5, 2000), request(), Response::code);
+        waitForRequests(1);
+        call.cancel(true);
+        Thread.sleep(1500);
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRetryACancelledBlockingCall() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "1"));
+
+        final var call = client(1, 5, 2000).newCall(request());
+        final var response = CompletableFuture.supplyAsync(() -> {
+            try (var ignored = call.execute()) {
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        waitForRequests(1);
+        call.cancel();
+
+        assertThat(response.join()).isInstanceOf(IOException.class);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parsesRetryAfter() {
+        assertThat(RetryInterceptor.retryAfter("120", 0)).isEqualTo(120_000);
+        assertThat(RetryInterceptor.retryAfter("Thu, 01 Jan 1970 00:00:10 GMT", 4_000)).isEqualTo(6_000);
+        assertThat(RetryInterceptor.retryAfter(null, 0)).isEqualTo(-1);
+    }
+
+    private OkHttpClient client(int maxRetries, int failureThreshold) {
+        return client(maxRetries, failureThreshold, 10);
+    }
+
+    private OkHttpClient client(int maxRetries, int failureThreshold, long maxBackoffMs) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(maxRetries, 1, maxBackoffMs, failureThreshold, 60_000))
+                .build();
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/")).build();
+    }
+
+    private Response call(OkHttpClient client) throws IOException {
+        return client.newCall(request()).execute();
+    }
+
+    private void waitForRequests(int count) {
+        final var deadline = System.currentTimeMillis() + 5000;
+        while (server.getRequestCount() < count && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+    }
+}
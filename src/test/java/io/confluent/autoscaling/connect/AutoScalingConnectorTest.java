@@ -0,0 +1,157 @@
+package io.confluent.autoscaling.connect;
+
+import io.confluent.autoscaling.cloud.MockConfluentCloud;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectorContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AutoScalingConnectorTest {
+
+    private static final String ENVIRONMENT_ID = "env-7qgq2";
+    private static final List<String> CLUSTERS_OF_5 = IntStream.range(0, 5).mapToObj(i -> "lkc-" + i)
+            .collect(Collectors.toList());
+
+    private final MockConfluentCloud cloud = new MockConfluentCloud();
+    private final MockWebServer server = cloud.server();
+    private final AutoScalingConnector connector = new AutoScalingConnector();
+    private final CountDownLatch reconfigured = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+        connector.initialize(new ConnectorContext() {
+            @Override
+            public void requestTaskReconfiguration() {
+                reconfigured.countDown();
+            }
+
+            @Override
+            public void raiseError(Exception e) {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connector.stop();
+        server.shutdown();
+    }
+
+    @Test
+    void createsATaskPerClusterWithoutTheScheduler() {
+        final var props = props(CLUSTERS_OF_5);
+        props.put(SCHEDULER_ENABLED, "false");
+        connector.start(props);
+
+        assertThat(shards(connector.taskConfigs(2))).containsExactly(
+                List.of("lkc-0"), List.of("lkc-1"), List.of("lkc-2"), List.of("lkc-3"), List.of("lkc-4"));
+    }
+
+    @Test
+    void shardsTheClustersAcrossFewerTasks() {
+        connector.start(props(CLUSTERS_OF_5));
+
+        assertThat(shards(connector.taskConfigs(2))).containsExactly(
+                List.of("lkc-0", "lkc-1", "lkc-2"), List.of("lkc-3", "lkc-4"));
+    }
+
+    @Test
+    void shardsAClusterPerTask() {
+        connector.start(props(CLUSTERS_OF_5));
+
+        assertThat(shards(connector.taskConfigs(5))).containsExactly(
+                List.of("lkc-0"), List.of("lkc-1"), List.of("lkc-2"), List.of("lkc-3"), List.of("lkc-4"));
+    }
+
+    @Test
+    void createsNoMoreTasksThanClusters() {
+        connector.start(props(CLUSTERS_OF_5));
+
+        final var configs = connector.taskConfigs(8);
+        assertThat(configs).hasSize(5);
+        assertThat(shards(configs).stream().flatMap(List::stream)).containsExactlyElementsOf(CLUSTERS_OF_5);
+        assertThat(configs).allSatisfy(config -> assertThat(config).containsEntry(API_URL, baseUrl()));
+    }
+
+    @Test
+    void keepsTheCoordinatedFleetInASingleTask() {
+        final var props = props(CLUSTERS_OF_5);
+        props.put(FLEET_ENABLED, "true");
+        props.put(FLEET_MAX_CKU, "10");
+        connector.start(props);
+
+        // two shards on two workers would each grant the whole budget
+        assertThat(shards(connector.taskConfigs(2))).containsExactly(CLUSTERS_OF_5);
+    }
+
+    @Test
+    void refusesToCoordinateTheFleetWithoutTheScheduler() {
+        final var props = props(CLUSTERS_OF_5);
+        props.put(FLEET_ENABLED, "true");
+        props.put(SCHEDULER_ENABLED, "false");
+
+        assertThatThrownBy(() -> connector.start(props)).isInstanceOf(ConfigException.class)
+                .hasMessageContaining(SCHEDULER_ENABLED);
+    }
+
+    @Test
+    void reconfiguresTheTasksWhenAClusterIsDiscovered() throws InterruptedException {
+        cloud.addCluster("lkc-0", ENVIRONMENT_ID, 1, ts -> 0.3);
+        final var props = props(List.of());
+        props.remove(CLUSTERS);
+        props.put(DISCOVERY_ENABLED, "true");
+        props.put(DISCOVERY_TTL_MS, "1000");
+        connector.start(props);
+        assertThat(shards(connector.taskConfigs(2))).containsExactly(List.of(ENVIRONMENT_ID + "/lkc-0"));
+
+        cloud.addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3);
+
+        assertThat(reconfigured.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(shards(connector.taskConfigs(2))).containsExactly(
+                List.of(ENVIRONMENT_ID + "/lkc-0"), List.of(ENVIRONMENT_ID + "/lkc-1"));
+    }
+
+    private static List<List<String>> shards(List<Map<String, String>> configs) {
+        return configs.stream().map(config -> List.of(config.get(CLUSTERS).split(","))).collect(Collectors.toList());
+    }
+
+    private String baseUrl() {
+        final var url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    private Map<String, String> props(List<String> clusters) {
+        final var props = new HashMap<String, String>();
+        props.put(CLOUD_KEY, "key");
+        props.put(CLOUD_SECRET, "secret");
+        props.put(API_URL, baseUrl());
+        props.put(TELEMETRY_URL, baseUrl());
+        props.put(ENVIRONMENT, ENVIRONMENT_ID);
+        props.put(CLUSTERS, String.join(",", clusters));
+        props.put(POLL_INTERVAL_MS, "500");
+        props.put(INTERVAL, "now-10m|m/now");
+        props.put(PERIOD, "PT1M");
+        props.put(EVALUATION_PERIODS, "3");
+        props.put(LOWER_THRESHOLD, "20");
+        props.put(UPPER_THRESHOLD, "50");
+        props.put(MIN_SIZE, "1");
+        props.put(MAX_SIZE, "4");
+        props.put(METRICS, "cluster_load_percent");
+        props.put(SCHEDULER_ENABLED, "true");
+        return props;
+    }
+}
@@ -0,0 +1,213 @@
+package io.confluent.autoscaling.connect;
+
+import io.confluent.autoscaling.cloud.MockConfluentCloud;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.kafka.connect.connector.ConnectorContext;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the connector task end to end against hundreds of simulated clusters, with injected latency and failures,
+ * and reports the decision latency, the request volume and the throughput.
+ */
+class AutoScalingLoadTest {
+
+    private static final int CLUSTER_COUNT = 200;
+    private static final String ENVIRONMENT_ID = "env-7qgq2";
+
+    private final MockConfluentCloud cloud = new MockConfluentCloud()
+            .provisioningDelay(300)
+            .latency(5)
+            .failures(0.02, 0.02);
+    private final MockWebServer server = cloud.server();
+    private final AutoScalingTask task = new AutoScalingTask();
+    private final AutoScalingConnector connector = new AutoScalingConnector();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        task.stop();
+        connector.stop();
+        server.shutdown();
+    }
+
+    @Test
+    void scalesTheHotClustersOfTheFleet() throws InterruptedException {
+        final var clusters = addClusters();
+        run(props(clusters), clusters);
+
+        assertThat(cloud.requests("list-clusters")).isZero();
+    }
+
+    @Test
+    void scalesTheDiscoveredClustersOfTheFleet() throws InterruptedException {
+        final var clusters = addClusters();
+        final var props = props(List.of());
+        props.remove(CLUSTERS);
+        props.put(DISCOVERY_ENABLED, "true");
+        props.put(DISCOVERY_TTL_MS, "500");
+
+        connector.initialize(new ConnectorContext() {
+            @Override
+            public void requestTaskReconfiguration() {
+            }
+
+            @Override
+            public void raiseError(Exception e) {
+            }
+        });
+        connector.start(props);
+        final var configs = connector.taskConfigs(1);
+        assertThat(configs).hasSize(1);
+        assertThat(configs.get(0).get(CLUSTERS).split(",")).hasSize(CLUSTER_COUNT).contains(ENVIRONMENT_ID + "/lkc-0");
+
+        run(configs.get(0), clusters);
+
+        // the clusters are read from the listing of the environment instead of one by one
+        assertThat(cloud.requests("read-cluster")).isZero();
+    }
+
+    @Test
+    void stopsWithoutWaitingForTheResponses() throws InterruptedException {
+        cloud.latency(2000);
+        final var clusters = addClusters();
+        final var props = props(clusters);
+        props.put(SCHEDULER_ENABLED, "false");
+        task.initialize(context());
+        task.start(props);
+        Thread.sleep(200); // the clusters are being read
+
+        final var stopping = System.currentTimeMillis();
+        task.stop();
+        final var polled = task.poll();
+        final var stoppedMs = System.currentTimeMillis() - stopping;
+
+        System.out.println("Stopped with " + CLUSTER_COUNT + " evaluations in flight in " + stoppedMs + " ms");
+        assertThat(polled).isNull();
+        assertThat(stoppedMs).isLessThan(1500); // well within the latency of the responses
+    }
+
+    /**
+     * The even clusters run at 150% of 1 CKU and settle at 3 CKU, the odd ones at 30% within the bounds.
+     */
+    private List<String> addClusters() {
+        final var clusters = IntStream.range(0, CLUSTER_COUNT).mapToObj(i -> "lkc-" + i).collect(Collectors.toList());
+        clusters.forEach(id -> cloud.addCluster(id, ENVIRONMENT_ID, 1,
+                Integer.parseInt(id.substring(4)) % 2 == 0 ? ts -> 1.5 : ts -> 0.3));
+        return clusters;
+    }
+
+    private void run(Map<String, String> props, List<String> clusters) throws InterruptedException {
+        task.initialize(context());
+        final var started = System.currentTimeMillis();
+        task.start(props);
+
+        final var firstExpansion = new HashMap<String, Long>();
+        var records = 0;
+        final var deadline = started + 30_000;
+        while (System.currentTimeMillis() < deadline && !converged(clusters)) {
+            final var polled = task.poll();
+            if (polled == null) continue;
+            records += polled.size();
+            for (SourceRecord record : polled) {
+                final var value = (Struct) record.value();
+                if ("EXPAND".equals(value.getString("decision"))) {
+                    firstExpansion.putIfAbsent(value.getString("cluster"), System.currentTimeMillis() - started);
+                }
+            }
+        }
+        final var elapsedMs = System.currentTimeMillis() - started;
+
+        final var latencies = firstExpansion.values().stream().sorted().collect(Collectors.toList());
+        System.out.println("Simulated " + CLUSTER_COUNT + " clusters for " + elapsedMs + " ms: "
+                + records + " evaluations (" + records * 1000 / Math.max(1, elapsedMs) + "/s), "
+                + cloud.requests("list-clusters") + " cluster listings, "
+                + cloud.requests("read-cluster") + " cluster reads, "
+                + cloud.requests("query-metric") + " metric queries, "
+                + cloud.requests("update-cluster") + " updates, first expansion after "
+                + latencies.get(latencies.size() / 2) + " ms median and "
+                + latencies.get(latencies.size() * 99 / 100) + " ms p99");
+
+        assertThat(converged(clusters)).isTrue();
+        assertThat(firstExpansion).hasSize(CLUSTER_COUNT / 2);
+    }
+
+    private boolean converged(List<String> clusters) {
+        return clusters.stream().allMatch(id -> {
+            final var cluster = cloud.cluster(id);
+            final var expected = Integer.parseInt(id.substring(4)) % 2 == 0 ? 3 : 1;
+            return cluster.statusCKU() == expected && cluster.configCKU() == expected;
+        });
+    }
+
+    private Map<String, String> props(List<String> clusters) {
+        final var url = server.url("/").toString();
+        final var baseUrl = url.substring(0, url.length() - 1);
+        final var props = new HashMap<String, String>();
+        props.put(CLOUD_KEY, "key");
+        props.put(CLOUD_SECRET, "secret");
+        props.put(API_URL, baseUrl);
+        props.put(TELEMETRY_URL, baseUrl);
+        props.put(ENVIRONMENT, ENVIRONMENT_ID);
+        props.put(CLUSTERS, String.join(",", clusters));
+        props.put(POLL_INTERVAL_MS, "500");
+        props.put(INTERVAL, "now-10m|m/now");
+        props.put(PERIOD, "PT1M");
+        props.put(EVALUATION_PERIODS, "3");
+        props.put(LOWER_THRESHOLD, "20");
+        props.put(UPPER_THRESHOLD, "50");
+        props.put(MIN_SIZE, "1");
+        props.put(MAX_SIZE, "4");
+        props.put(METRICS, "received_bytes,cluster_load_percent");
+        props.put(SCALE_OUT_COOLDOWN_MS, "0");
+        props.put(RESIZE_BACKOFF_MAX_MS, "1000");
+        props.put(SCHEDULER_ENABLED, "true");
+        props.put(SCHEDULER_THREADS, "8");
+        props.put(SCHEDULER_JITTER_MS, "100");
+        props.put(RETRY_BACKOFF_MS, "10");
+        props.put(RETRY_BACKOFF_MAX_MS, "100");
+        props.put(CIRCUIT_FAILURE_THRESHOLD, "1000");
+        return props;
+    }
+
+    static SourceTaskContext context() {
+        return new SourceTaskContext() {
+            @Override
+            public Map<String, String> configs() {
+                return Map.of();
+            }
+
+            @Override
+            public OffsetStorageReader offsetStorageReader() {
+                return new OffsetStorageReader() {
+                    @Override
+                    public <T> Map<String, Object> offset(Map<String, T> partition) {
+                        return null;
+                    }
+
+                    @Override
+                    public <T> Map<Map<String, T>, Map<String, Object>> offsets(Collection<Map<String, T>> partitions) {
+                        return Map.of();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -1,11 +1,44 @@
 package io.confluent.autoscaling.connect;
 
+import io.confluent.autoscaling.cloud.HttpClientFactory;
+import io.confluent.autoscaling.cloud.MockConfluentCloud;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.confluent.autoscaling.connect.AutoScalingConfig.*;
+import static org.assertj.core.api.Assertions.assertThat;
 
 class AutoScalingTaskTest {
 
+    private static final String ENVIRONMENT_ID = "env-7qgq2";
+
+    private final MockConfluentCloud cloud = new MockConfluentCloud();
+    private final MockWebServer server = cloud.server();
+    private final AutoScalingTask task = new AutoScalingTask();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        task.stop();
+        server.shutdown();
+    }
+
     @Test
     void test() {
         // 4.686472769E9
@@ -19,4 +52,152 @@ class AutoScalingTaskTest {
         // System.out.println(BigDecimal.);
         // AutoScalingTask.extracted(1, CKULimits.RECEIVED_BYTES, )
     }
-}
\ No newline at end of file
+
+    @Test
+    void pollsWithinThePollIntervalWhileTheRequestsAreInFlight() throws InterruptedException {
+        cloud.latency(3000).addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3);
+        task.initialize(AutoScalingLoadTest.context());
+        task.start(props("lkc-1"));
+
+        final var start = System.currentTimeMillis();
+        assertThat(task.poll()).isNull();
+        assertThat(System.currentTimeMillis() - start).isBetween(400L, 1500L);
+    }
+
+    @Test
+    void cancelsTheCallsInFlightOnClose() throws Exception {
+        cloud.latency(3000).addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3);
+        final var config = new AutoScalingConfig(props("lkc-1"));
+        final var client = new OkHttpClient();
+
+        final CompletableFuture<SourceRecord> evaluation;
+        try (var scaler = new ClusterAutoScaler(config, "lkc-1", ENVIRONMENT_ID, client, null, null)) {
+            evaluation = scaler.evaluateAsync();
+            assertThat(client.dispatcher().runningCallsCount()).isEqualTo(1);
+        }
+
+        // the evaluation completes and the call is released well before the response
+        assertThat(evaluation.get(500, TimeUnit.MILLISECONDS)).isNull();
+        final var deadline = System.currentTimeMillis() + 1000;
+        while (client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        assertThat(client.dispatcher().runningCallsCount()).isZero();
+    }
+
+    @Test
+    void keepsEvaluatingAfterAFailedEvaluation() throws InterruptedException {
+        final var props = props("lkc-1");
+        props.put(SCHEDULER_ENABLED, "false");
+        props.put(POLL_INTERVAL_MS, "200");
+        task.initialize(AutoScalingLoadTest.context());
+        task.start(props);
+
+        // the cluster is not found until it is created
+        assertThat(task.poll()).isNull();
+        assertThat(cloud.requests("read-cluster")).isPositive();
+        cloud.addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3);
+
+        List<SourceRecord> records = null;
+        final var deadline = System.currentTimeMillis() + 5000;
+        while (records == null && System.currentTimeMillis() < deadline) records = task.poll();
+        assertThat(records).isNotEmpty();
+    }
+
+    @Test
+    void evaluatesEveryClusterOnItsOwnSchedule() throws InterruptedException {
+        for (int i = 0; i < 10; i++) cloud.addCluster("lkc-" + i, ENVIRONMENT_ID, 1, ts -> 0.3);
+        final var props = props(String.join(",", "lkc-0", "lkc-1", "lkc-2", "lkc-3", "lkc-4", "lkc-5", "lkc-6",
+                "lkc-7", "lkc-8", "lkc-9"));
+        props.put(SCHEDULER_ENABLED, "true");
+        props.put(POLL_INTERVAL_MS, "1000");
+        props.put(SCHEDULER_JITTER_MS, "200");
+        task.initialize(AutoScalingLoadTest.context());
+        task.start(props);
+        Thread.sleep(2500);
+
+        // the first evaluations are spread over the poll interval, then every 1000 ms with a jitter of 200 ms
+        assertThat(cloud.requests("read-cluster")).isBetween(15L, 40L);
+    }
+
+    @Test
+    void probesAnUnknownClusterOnlyOnTheProbeInterval() throws InterruptedException {
+        final var props = alignedProps("lkc-unknown");
+        task.initialize(AutoScalingLoadTest.context());
+        task.start(props);
+        Thread.sleep(2000);
+
+        // the failed evaluations are probed every second instead of right away
+        assertThat(cloud.requests("read-cluster")).isBetween(1L, 4L);
+    }
+
+    @Test
+    void readsAClusterResizedElsewhereOnlyOnTheBackoff() throws InterruptedException {
+        cloud.provisioningDelay(600_000).addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3).resizeCluster("lkc-1", 2);
+        task.initialize(AutoScalingLoadTest.context());
+        task.start(alignedProps("lkc-1"));
+        Thread.sleep(2000);
+
+        // the resize in progress is read again after the poll interval, the metrics are not queried
+        assertThat(cloud.requests("read-cluster")).isEqualTo(1);
+        assertThat(cloud.requests("query-metric")).isZero();
+    }
+
+    @Test
+    void delaysTheNextEvaluationOfAClusterResizedElsewhere() {
+        cloud.provisioningDelay(600_000).addCluster("lkc-1", ENVIRONMENT_ID, 1, ts -> 0.3).resizeCluster("lkc-1", 2);
+        final var config = new AutoScalingConfig(alignedProps("lkc-1"));
+        final var client = HttpClientFactory.sharedClient(config.httpClientSettings());
+
+        try (var scaler = new ClusterAutoScaler(config, "lkc-1", ENVIRONMENT_ID, client, null, null)) {
+            scaler.evaluateAsync().join();
+            final var now = System.currentTimeMillis();
+
+            // neither the scheduler nor the round spins until the cluster is read again
+            assertThat(scaler.alignedDelay(now)).isBetween(20_000L, 25_000L);
+            assertThat(scaler.evaluateAsync().join()).isNull();
+            assertThat(cloud.requests("read-cluster")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void delaysTheNextEvaluationOfAFailedCluster() {
+        final var config = new AutoScalingConfig(alignedProps("lkc-unknown"));
+        final var client = HttpClientFactory.sharedClient(config.httpClientSettings());
+
+        try (var scaler = new ClusterAutoScaler(config, "lkc-unknown", ENVIRONMENT_ID, client, null, null)) {
+            assertThat(scaler.evaluateAsync().join()).isNull();
+            assertThat(scaler.alignedDelay(System.currentTimeMillis())).isBetween(500L, 1000L);
+        }
+    }
+
+    private Map<String, String> alignedProps(String cluster) {
+        final var props = props(cluster);
+        props.put(SCHEDULER_ENABLED, "false");
+        props.put(SCHEDULER_BUCKET_ALIGNED, "true");
+        props.put(SCHEDULER_PROBE_MS, "1000");
+        props.put(POLL_INTERVAL_MS, "25000");
+        return props;
+    }
+
+    private Map<String, String> props(String cluster) {
+        final var url = server.url("/").toString();
+        final var baseUrl = url.substring(0, url.length() - 1);
+        final var props = new HashMap<String, String>();
+        props.put(CLOUD_KEY, "key");
+        props.put(CLOUD_SECRET, "secret");
+        props.put(API_URL, baseUrl);
+        props.put(TELEMETRY_URL, baseUrl);
+        props.put(ENVIRONMENT, ENVIRONMENT_ID);
+        props.put(CLUSTERS, cluster);
+        props.put(POLL_INTERVAL_MS, "500");
+        props.put(INTERVAL, "now-10m|m/now");
+        props.put(PERIOD, "PT1M");
+        props.put(EVALUATION_PERIODS, "3");
+        props.put(LOWER_THRESHOLD, "20");
+        props.put(UPPER_THRESHOLD, "50");
+        props.put(MIN_SIZE, "1");
+        props.put(MAX_SIZE, "4");
+        props.put(METRICS, "received_bytes,cluster_load_percent");
+        props.put(RETRY_MAX_RETRIES, "0");
+        return props;
+    }
+}
@@ -0,0 +1,128 @@
+package io.confluent.autoscaling.connect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetCoordinatorTest {
+
+    private static final long BATCH_MS = 3_600_000L; // the batches are drained by the tests
+
+    @Test
+    void grantsTheMostSevereExpansionsWithinTheBudgets() {
+        final var coordinator = coordinator(new FleetCoordinator.Settings()
+                .budgets(12, Map.of("env-a", 6)).resizeRate(60, 10).batch(BATCH_MS));
+        coordinator.report("env-b/lkc-3", "env-b", 2);
+
+        final var mild = coordinator.resize("env-a/lkc-1", "env-a", 2, 4, 90);
+        final var severe = coordinator.resize("env-a/lkc-2", "env-a", 2, 5, 150);
+        final var other = coordinator.resize("env-b/lkc-3", "env-b", 2, 8, 120);
+        coordinator.drain(0);
+
+        // env-a has 6 - 4 = 2 CKU of headroom for the most severe cluster, then the fleet has 12 - 8 = 4
+        assertThat(severe).isCompletedWithValue(4);
+        assertThat(other).isCompletedWithValue(6);
+        assertThat(mild).isCompletedWithValue(2);
+        assertThat(coordinator.usedCKU(null)).isEqualTo(12);
+        assertThat(coordinator.usedCKU("env-a")).isEqualTo(6);
+    }
+
+    @Test
+    void alwaysGrantsAScaleIn() {
+        final var coordinator = coordinator(new FleetCoordinator.Settings()
+                .budgets(4, Map.of()).resizeRate(60, 10).batch(BATCH_MS));
+        coordinator.report("env-a/lkc-1", "env-a", 4);
+
+        final var expansion = coordinator.resize("env-a/lkc-2", "env-a", 1, 3, 200);
+        final var shrink = coordinator.resize("env-a/lkc-1", "env-a", 4, 2, 10);
+        coordinator.drain(0);
+
+        // the expansion is denied before the scale in frees the budget
+        assertThat(expansion).isCompletedWithValue(1);
+        assertThat(shrink).isCompletedWithValue(2);
+        assertThat(coordinator.usedCKU(null)).isEqualTo(3);
+    }
+
+    @Test
+    void deniesTheExpansionsUntilTheFleetIsReported() {
+        final var coordinator = coordinator(new FleetCoordinator.Settings()
+                .budgets(null, Map.of("env-a", 6)).resizeRate(60, 10).batch(BATCH_MS));
+        coordinator.register("env-a/lkc-1", "env-a", 1, 0);
+        coordinator.register("env-a/lkc-2", "env-a", 1, 0);
+        coordinator.register("env-b/lkc-3", "env-b", 1, 0);
+
+        // lkc-2 may already run at 4 CKU, so 2 -> 5 could exceed the budget of env-a
+        final var early = coordinator.resize("env-a/lkc-1", "env-a", 2, 5, 100);
+        final var unlimited = coordinator.resize("env-b/lkc-3", "env-b", 2, 5, 100);
+        coordinator.drain(0);
+        assertThat(early).isCompletedWithValue(2);
+        assertThat(unlimited).isCompletedWithValue(5);
+
+        coordinator.report("env-a/lkc-2", "env-a", 4);
+        final var reported = coordinator.resize("env-a/lkc-1", "env-a", 2, 5, 100);
+        coordinator.drain(1000);
+        assertThat(reported).isCompletedWithValue(2);
+        assertThat(coordinator.usedCKU("env-a")).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void countsAClusterNeverReportedAtItsMinimumSize() {
+        final var coordinator = coordinator(new FleetCoordinator.Settings()
+                .budgets(10, Map.of()).resizeRate(60, 10).batch(BATCH_MS).reportTimeout(30_000));
+        coordinator.register("env-a/lkc-1", "env-a", 2, 0);
+        coordinator.register("env-a/lkc-2", "env-a", 2, 0);
+
+        // lkc-2 cannot be read, it holds the expansion of lkc-1 until the report timeout
+        final var early = coordinator.resize("env-a/lkc-1", "env-a", 2, 9, 100);
+        coordinator.drain(10_000);
+        assertThat(early).isCompletedWithValue(2);
+
+        final var late = coordinator.resize("env-a/lkc-1", "env-a", 2, 9, 100);
+        coordinator.drain(30_000);
+        assertThat(late).isCompletedWithValue(8);
+        assertThat(coordinator.usedCKU(null)).isEqualTo(10);
+    }
+
+    @Test
+    void releasesTheCoordinatorWithTheLastTask() {
+        final var settings = new FleetCoordinator.Settings().connector("releases").budgets(10, Map.of());
+        final var first = FleetCoordinator.shared(settings);
+        final var second = FleetCoordinator.shared(settings);
+        assertThat(second).isSameAs(first);
+
+        first.release();
+        assertThat(FleetCoordinator.shared(settings)).isSameAs(first);
+        first.release();
+        second.release();
+        assertThat(FleetCoordinator.shared(settings)).isNotSameAs(first);
+    }
+
+    @Test
+    void limitsTheRateOfTheResizes() {
+        final var coordinator = coordinator(new FleetCoordinator.Settings()
+                .resizeRate(60, 2).batch(BATCH_MS));
+
+        final var first = coordinator.resize("env-a/lkc-1", "env-a", 1, 2, 100);
+        final var second = coordinator.resize("env-a/lkc-2", "env-a", 1, 2, 100);
+        final var third = coordinator.resize("env-a/lkc-3", "env-a", 1, 2, 100);
+        final var withdrawn = coordinator.resize("env-a/lkc-4", "env-a", 1, 2, 100);
+        coordinator.drain(0);
+
+        assertThat(first).isCompletedWithValue(2);
+        assertThat(second).isCompletedWithValue(2);
+        assertThat(third).isNotDone();
+
+        withdrawn.cancel(true);
+        coordinator.drain(500);
+        assertThat(third).isNotDone();
+        coordinator.drain(1000);
+        assertThat(third).isCompletedWithValue(2);
+        assertThat(coordinator.usedCKU(null)).isEqualTo(2 + 2 + 2 + 1);
+    }
+
+    private static FleetCoordinator coordinator(FleetCoordinator.Settings settings) {
+        return new FleetCoordinator(settings, 0);
+    }
+}
@@ -0,0 +1,29 @@
+package io.confluent.autoscaling.connect;
+
+import io.confluent.autoscaling.policy.Evaluation;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScalingEventTest {
+
+    @Test
+    void buildsValidStruct() {
+        final var event = new ScalingEvent("lkc-22rwq2", 1650553800000L, true);
+        event.size(2);
+        event.utilisation("received_bytes", 74);
+        event.score(180);
+        event.metricReason("received_bytes", "all at 74% above 50%, score 180");
+        event.decide(Evaluation.Decision.EXPAND, 3, "received_bytes at 74% above 50%");
+
+        final var struct = event.toStruct();
+        struct.validate();
+
+        assertThat(struct.getInt32("target_cku")).isEqualTo(3);
+        assertThat(struct.getMap("utilisation")).containsEntry("received_bytes", 74L);
+        assertThat(struct.get("forecast")).isNull();
+        assertThat(struct.getInt64("score")).isEqualTo(180L);
+        assertThat(struct.getMap("metric_reasons")).containsEntry("received_bytes", "all at 74% above 50%, score 180");
+        assertThat(struct.getBoolean("dry_run")).isTrue();
+    }
+}
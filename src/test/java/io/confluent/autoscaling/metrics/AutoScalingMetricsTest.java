@@ -0,0 +1,47 @@
+package io.confluent.autoscaling.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AutoScalingMetricsTest {
+
+    @Test
+    void exposesClusterMetricsViaJmx() throws Exception {
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        final var cluster = new ObjectName("confluent.cloud.autoscaling:type=cluster-metrics,cluster-id=lkc-test");
+        final var utilisation = new ObjectName(
+                "confluent.cloud.autoscaling:type=cluster-metric-metrics,cluster-id=lkc-test,metric=received_bytes");
+
+        try (var metrics = AutoScalingMetrics.get().cluster("lkc-test")) {
+            metrics.recordEvaluation(12, 2, 3);
+            metrics.recordScaleOut();
+            metrics.recordUtilisation("received_bytes", 74);
+
+            assertThat(server.getAttribute(cluster, "target-cku")).isEqualTo(3);
+            assertThat(server.getAttribute(cluster, "scale-out-total")).isEqualTo(1.0);
+            assertThat(server.getAttribute(utilisation, "utilisation")).isEqualTo(74L);
+        }
+
+        assertThat(server.isRegistered(cluster)).isFalse();
+    }
+
+    @Test
+    void keepsTheMetricsOfAClusterUntilTheLastUserCloses() throws Exception {
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        final var cluster = new ObjectName("confluent.cloud.autoscaling:type=cluster-metrics,cluster-id=lkc-shared");
+
+        final var previous = AutoScalingMetrics.get().cluster("lkc-shared");
+        try (var next = AutoScalingMetrics.get().cluster("lkc-shared")) {
+            previous.close();
+            next.recordScaleOut();
+
+            assertThat(server.getAttribute(cluster, "scale-out-total")).isEqualTo(1.0);
+        }
+
+        assertThat(server.isRegistered(cluster)).isFalse();
+    }
+}
@@ -0,0 +1,132 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.MetricWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AggregatorTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void aggregatesTheLatestBuckets() {
+        final var window = window(10, 40, 20, 30, 50, 60);
+
+        assertThat(aggregate("all", window)).containsExactly(30.0, 60.0);
+        assertThat(aggregate("max", window)).containsExactly(60.0, 60.0);
+        assertThat(aggregate("mean", window)[0]).isCloseTo(46.667, within(1e-3));
+        assertThat(aggregate("p50", window)).containsExactly(50.0, 50.0);
+        assertThat(aggregate("p99", window)).containsExactly(60.0, 60.0);
+        // the 3rd highest and the 3rd lowest of the latest 5
+        assertThat(aggregate("3-of-5", window)).containsExactly(40.0, 40.0);
+        assertThat(aggregate("2-of-5", window)).containsExactly(50.0, 30.0);
+    }
+
+    @Test
+    void smoothsExponentially() {
+        final var aggregator = Aggregator.of("ewma", 3, "PT1M");
+        aggregator.update(window(10, 20, 40));
+
+        // alpha 0.5: 10, 15, 27.5
+        assertThat(aggregator.scaleOutValue()).isCloseTo(27.5, within(1e-9));
+    }
+
+    @Test
+    void refreshesTheOpenBucketIncrementally() {
+        final var window = new MetricWindow(4, "PT1M");
+        final var mean = Aggregator.of("mean", 4, "PT1M");
+        final var ewma = Aggregator.of("ewma", 3, "PT1M");
+        for (int i = 0; i < 3; i++) window.add(i * MINUTE, 10 * (i + 1));
+        mean.update(window);
+        ewma.update(window);
+
+        window.add(2 * MINUTE, 40); // the open bucket refreshed
+        window.add(3 * MINUTE, 20);
+        mean.update(window);
+        ewma.update(window);
+
+        assertThat(mean.size()).isEqualTo(4);
+        assertThat(mean.scaleOutValue()).isCloseTo(22.5, within(1e-9));
+        // 10, 15, 27.5, 23.75 as if the refreshed value was the only one
+        assertThat(ewma.scaleOutValue()).isCloseTo(23.75, within(1e-9));
+    }
+
+    @Test
+    void needsMBucketsOfN() {
+        final var aggregator = Aggregator.of("3-of-5", 3, "PT1M");
+        aggregator.update(window(90, 90));
+
+        assertThat(aggregator.capacity()).isEqualTo(5);
+        assertThat(aggregator.scaleOutValue()).isNaN();
+        assertThat(aggregator.scaleInValue()).isNaN();
+    }
+
+    @Test
+    void forgetsTheBucketsBeforeAGap() {
+        final var window = new MetricWindow(3, "PT1M");
+        final var aggregator = Aggregator.of("mean", 3, "PT1M");
+        window.add(0, 100);
+        window.add(MINUTE, 100);
+        aggregator.update(window);
+
+        window.add(10 * MINUTE, 10);
+        aggregator.update(window);
+
+        assertThat(aggregator.size()).isEqualTo(1);
+        assertThat(aggregator.scaleOutValue()).isEqualTo(10.0);
+    }
+
+    @Test
+    void keepsTheAggregatesAsTheBucketsAreFed() {
+        final var random = new Random(42);
+        final var window = new MetricWindow(5, "PT1M");
+        final var specs = new String[]{"all", "max", "p50", "p90", "2-of-5"};
+        final var aggregators = new Aggregator[specs.length];
+        for (int a = 0; a < specs.length; a++) aggregators[a] = Aggregator.of(specs[a], 5, "PT1M");
+
+        var minute = 0L;
+        for (int i = 0; i < 500; i++) {
+            // mostly the next bucket, sometimes the open one refreshed or a gap, with repeated values
+            final var step = random.nextInt(10);
+            minute += step == 0 ? 0 : step == 1 ? 7 : 1;
+            window.add(minute * MINUTE, random.nextInt(20));
+            for (int a = 0; a < specs.length; a++) {
+                aggregators[a].update(window);
+                final var expected = aggregate(specs[a], window, 5);
+                assertThat(new double[]{aggregators[a].scaleOutValue(), aggregators[a].scaleInValue()})
+                        .as(specs[a] + " after " + i + " buckets").containsExactly(expected);
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownAggregators() {
+        assertThatThrownBy(() -> Aggregator.of("median", 3, "PT1M")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Aggregator.of("6-of-5", 3, "PT1M")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Aggregator.of("p0", 3, "PT1M")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double[] aggregate(String spec, MetricWindow window) {
+        return aggregate(spec, window, 3);
+    }
+
+    /**
+     * The aggregates of a fresh aggregator fed the whole window at once.
+     */
+    private static double[] aggregate(String spec, MetricWindow window, int periods) {
+        final var aggregator = Aggregator.of(spec, periods, "PT1M");
+        aggregator.update(window);
+        return new double[]{aggregator.scaleOutValue(), aggregator.scaleInValue()};
+    }
+
+    private static MetricWindow window(double... values) {
+        final var window = new MetricWindow(values.length, "PT1M");
+        for (int i = 0; i < values.length; i++) window.add(i * MINUTE, values[i]);
+        return window;
+    }
+}
@@ -0,0 +1,48 @@
+package io.confluent.autoscaling.policy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BucketClockTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void probesUntilTheFirstBucket() {
+        final var clock = new BucketClock(MINUTE, 30_000, 10_000);
+        clock.onRead(Long.MIN_VALUE, 0);
+
+        assertThat(clock.isDue(5_000)).isFalse();
+        assertThat(clock.nextDelay(0)).isEqualTo(10_000);
+    }
+
+    @Test
+    void wakesAfterTheBucketClosesPlusTheLag() {
+        final var clock = new BucketClock(MINUTE, 30_000, 10_000);
+
+        // the bucket [0, 1m) is read, the next one closes at 2m and is available 30 s later
+        clock.onRead(0, 100_000);
+        assertThat(clock.nextDelay(100_000)).isEqualTo(50_000);
+        assertThat(clock.isDue(149_999)).isFalse();
+        assertThat(clock.isDue(150_000)).isTrue();
+    }
+
+    @Test
+    void adaptsTheLagToTheObservedOne() {
+        final var clock = new BucketClock(MINUTE, 30_000, 10_000);
+        clock.onRead(0, 100_000);
+
+        // found on time, so the next one is tried a little earlier
+        clock.onRead(MINUTE, 150_000);
+        assertThat(clock.lagMs()).isEqualTo(25_000);
+        assertThat(clock.nextDelay(150_000)).isEqualTo(55_000);
+
+        // not there yet, probed again until it shows up 35 s after it closed
+        clock.onRead(MINUTE, 205_000);
+        assertThat(clock.nextDelay(205_000)).isEqualTo(10_000);
+        clock.onRead(2 * MINUTE, 215_000);
+        assertThat(clock.lagMs()).isEqualTo(35_000);
+        assertThat(clock.nextDelay(215_000)).isEqualTo(60_000);
+    }
+}
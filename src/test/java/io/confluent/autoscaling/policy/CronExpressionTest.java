@@ -0,0 +1,66 @@
+package io.confluent.autoscaling.policy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CronExpressionTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void findsTheLatestMatch() {
+        final var weekdays = CronExpression.parse("30 8 * * MON-FRI", ZoneOffset.UTC);
+        final var monday = at("2022-05-02T10:00:00Z");
+
+        assertThat(weekdays.latest(monday - 24 * HOUR, monday)).isEqualTo(at("2022-05-02T08:30:00Z"));
+        // Saturday and Sunday are skipped back to Friday
+        assertThat(weekdays.latest(monday - 80 * HOUR, monday - 2 * HOUR)).isEqualTo(at("2022-04-29T08:30:00Z"));
+        assertThat(weekdays.latest(monday - HOUR, monday)).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void matchesTheStepsAndLists() {
+        final var cron = CronExpression.parse("0/20 1,13 1 JAN,jul *", ZoneOffset.UTC);
+
+        assertThat(cron.latest(at("2022-06-01T00:00:00Z"), at("2022-07-01T13:59:00Z")))
+                .isEqualTo(at("2022-07-01T13:40:00Z"));
+        assertThat(cron.latest(at("2022-07-02T00:00:00Z"), at("2022-12-31T23:59:00Z"))).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void matchesEitherRestrictedDay() {
+        // the 15th or any Sunday
+        final var cron = CronExpression.parse("0 0 15 * 0", ZoneOffset.UTC);
+
+        assertThat(cron.latest(at("2022-05-10T00:00:00Z"), at("2022-05-14T00:00:00Z"))).isEqualTo(Long.MIN_VALUE);
+        assertThat(cron.latest(at("2022-05-10T00:00:00Z"), at("2022-05-15T12:00:00Z"))).isEqualTo(at("2022-05-15T00:00:00Z"));
+        assertThat(cron.latest(at("2022-05-02T00:00:00Z"), at("2022-05-09T00:00:00Z"))).isEqualTo(at("2022-05-08T00:00:00Z"));
+    }
+
+    @Test
+    void matchesInTheTimeZone() {
+        final var cron = CronExpression.parse("0 9 * * *", ZoneId.of("Europe/London"));
+
+        // 09:00 BST is 08:00 UTC
+        assertThat(cron.latest(at("2022-06-01T00:00:00Z"), at("2022-06-01T12:00:00Z"))).isEqualTo(at("2022-06-01T08:00:00Z"));
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertThatThrownBy(() -> CronExpression.parse("0 9 * *", ZoneOffset.UTC)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CronExpression.parse("60 9 * * *", ZoneOffset.UTC)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CronExpression.parse("0 9 * * 1-8", ZoneOffset.UTC)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CronExpression.parse("*/0 9 * * *", ZoneOffset.UTC)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CronExpression.parse("0 9 * FOO *", ZoneOffset.UTC)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long at(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+}
@@ -0,0 +1,254 @@
+package io.confluent.autoscaling.policy;
+
+import io.confluent.autoscaling.cloud.CKULimits;
+import io.confluent.autoscaling.cloud.MetricWindow;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static io.confluent.autoscaling.policy.ScalingState.Action.EXPAND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ScalingPolicyTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final ScalingPolicy policy = new ScalingPolicy(
+            List.of(CKULimits.RECEIVED_BYTES, CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+            .thresholds(20, 50, 35)
+            .size(1, 5, 2)
+            .evaluationPeriods(3)
+            .cooldowns(5 * MINUTE, 15 * MINUTE);
+
+    @Test
+    void convertsToPercentOfTheCapacity() {
+        // 4.686472769E9 bytes a minute on 1 CKU
+        assertThat(policy.utilisation(0, 1, 4.686472769E9)).isEqualTo(148);
+        assertThat(policy.utilisation(0, 2, 4.686472769E9)).isEqualTo(74);
+        assertThat(policy.utilisation(1, 3, 0.42)).isEqualTo(42);
+    }
+
+    @Test
+    void convertsToPercentOfAFractionalLimit() {
+        final var limits = CKULimits.defaults().configure(Map.of(
+                "producer_count.kind", "gauge",
+                "producer_count", "0.5",
+                "request_count", "0.01"), null, null, null);
+        final var fractional = new ScalingPolicy(List.of("producer_count", "request_count"), "PT1M", limits);
+
+        assertThat(fractional.utilisation(0, 1, 1)).isEqualTo(200);
+        assertThat(fractional.utilisation(0, 4, 1)).isEqualTo(50);
+        assertThat(fractional.utilisation(1, 2, 0.9)).isEqualTo(75);
+    }
+
+    @Test
+    void sizesForTheTargetUtilisation() {
+        assertThat(ScalingPolicy.targetCKU(1, 150, 50)).isEqualTo(3);
+        assertThat(ScalingPolicy.targetCKU(2, 60, 35)).isEqualTo(4);
+        assertThat(ScalingPolicy.targetCKU(4, 15, 35)).isEqualTo(2);
+        assertThat(ScalingPolicy.targetCKU(4, 0, 35)).isEqualTo(1);
+    }
+
+    @Test
+    void extrapolatesTheTrend() {
+        final var window = new MetricWindow(5, "PT1M");
+        for (int i = 0; i < 5; i++) window.add(i * MINUTE, 10 + 2 * i);
+
+        assertThat(ScalingPolicy.forecast(window, 0, 9 * MINUTE)).isCloseTo(28.0, within(1e-9));
+        assertThat(ScalingPolicy.forecast(window, 4, 9 * MINUTE)).isNaN();
+    }
+
+    @Test
+    void expandsOnSustainedUtilisationWithinTheStep() {
+        final var windows = windows(new double[]{0.3, 0.3, 0.3}, new double[]{0.9, 0.95, 1.2});
+        final var evaluation = new Evaluation(policy);
+
+        policy.evaluate(1, windows, policy.newAggregators(), new ScalingState(), 10 * MINUTE, evaluation);
+
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.EXPAND);
+        assertThat(evaluation.targetCKU()).isEqualTo(3); // 90% on 1 CKU asks for 3 CKU at 35%
+        assertThat(evaluation.utilisation(1)).isEqualTo(120);
+        assertThat(evaluation.reason()).isEqualTo("cluster_load_percent at 90% above 50%");
+    }
+
+    @Test
+    void expandsDespiteADipWithMOfN() {
+        final var windows = windows(new double[]{0.3, 0.3, 0.3}, new double[]{0.9, 0.4, 1.2});
+        final var evaluation = new Evaluation(policy);
+
+        policy.evaluate(1, windows, policy.newAggregators(), new ScalingState(), 10 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+
+        final var tolerant = new ScalingPolicy(List.of(CKULimits.RECEIVED_BYTES, CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .aggregators(Aggregator.ALL, Map.of(CKULimits.CLUSTER_LOAD_PERCENT, "2-of-3"));
+        final var tolerantEvaluation = new Evaluation(tolerant);
+        tolerant.evaluate(1, windows, tolerant.newAggregators(), new ScalingState(), 10 * MINUTE, tolerantEvaluation);
+
+        assertThat(tolerantEvaluation.decision()).isEqualTo(Evaluation.Decision.EXPAND);
+        assertThat(tolerantEvaluation.reason()).isEqualTo("cluster_load_percent 2-of-3 at 90% above 50%");
+    }
+
+    @Test
+    void scoresTheMetricsAgainstTheirOwnBounds() {
+        final var scored = new ScalingPolicy(List.of(CKULimits.RECEIVED_BYTES, CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .metricThresholds(CKULimits.CLUSTER_LOAD_PERCENT, 40, 70, 1)
+                .metricThresholds(CKULimits.RECEIVED_BYTES, null, null, 2);
+        final var evaluation = new Evaluation(scored);
+
+        // the load of 60% is within its bounds, the received bytes at 40% are weighted above 100
+        scored.evaluate(1, windows(new double[]{0.4, 0.4, 0.4}, new double[]{0.6, 0.6, 0.6}), scored.newAggregators(),
+                new ScalingState(), 10 * MINUTE, evaluation);
+
+        assertThat(evaluation.score()).isEqualTo(133);
+        assertThat(evaluation.score(1)).isEqualTo(67);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.EXPAND);
+        // 60% load sized for its target of 55%
+        assertThat(evaluation.targetCKU()).isEqualTo(2);
+        assertThat(evaluation.reason()).isEqualTo("received_bytes at 40% weighted above 50%");
+        assertThat(evaluation.reason(0)).isEqualTo("all at 40% within 20-50%, score 133 weighted 2.0");
+        assertThat(evaluation.reason(1)).isEqualTo("all at 60% within 40-70%, score 67");
+    }
+
+    @Test
+    void ignoresTheMetricsWithoutWeight() {
+        final var reported = new ScalingPolicy(List.of(CKULimits.RECEIVED_BYTES, CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .metricThresholds(CKULimits.RECEIVED_BYTES, null, null, 0);
+        final var evaluation = new Evaluation(reported);
+
+        reported.evaluate(4, windows(new double[]{2.0, 2.0, 2.0}, new double[]{0.1, 0.1, 0.1}), reported.newAggregators(),
+                new ScalingState(), 10 * MINUTE, evaluation);
+
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.SHRINK);
+        assertThat(evaluation.reason()).isEqualTo("all metrics at most 10% below 20%");
+        assertThat(evaluation.reason(0)).isEqualTo("all at 50% within 20-50%, score 0 weighted 0.0");
+    }
+
+    @Test
+    void onlyReportsWhenNoMetricHasWeight() {
+        final var reported = new ScalingPolicy(List.of(CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .metricThresholds(CKULimits.CLUSTER_LOAD_PERCENT, null, null, 0);
+        final var evaluation = new Evaluation(reported);
+        final var load = new MetricWindow(10, "PT1M");
+        for (int i = 0; i < 3; i++) load.add(i * MINUTE, 0.1);
+
+        reported.evaluate(4, new MetricWindow[]{load}, reported.newAggregators(), new ScalingState(), 10 * MINUTE, evaluation);
+
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+        assertThat(evaluation.utilisation(0)).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksNoFurtherThanThePartitionsAllow() {
+        final var partitioned = new ScalingPolicy(List.of(CKULimits.CLUSTER_LOAD_PERCENT, CKULimits.PARTITION_COUNT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .metricThresholds(CKULimits.PARTITION_COUNT, null, null, 0);
+        final var evaluation = new Evaluation(partitioned);
+        final var load = new MetricWindow(3, "PT1M");
+        final var partitions = new MetricWindow(3, "PT1M");
+        for (int i = 0; i < 3; i++) {
+            load.add(i * MINUTE, 0.1);
+            partitions.add(i * MINUTE, i == 1 ? 10_000 : 8_000);
+        }
+
+        // the load alone would shrink to 2 CKU, the peak of 10000 partitions needs 3 CKU
+        partitioned.evaluate(4, new MetricWindow[]{load, partitions}, partitioned.newAggregators(), new ScalingState(),
+                10 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.SHRINK);
+        assertThat(evaluation.targetCKU()).isEqualTo(3);
+
+        partitioned.evaluate(3, new MetricWindow[]{load, partitions}, partitioned.newAggregators(), new ScalingState(),
+                10 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+        assertThat(evaluation.constraint()).isEqualTo(Evaluation.Constraint.CAPACITY_FLOOR);
+        assertThat(evaluation.reason()).isEqualTo("all metrics at most 10% below 20%, but the partition_count limit needs 3 CKU");
+    }
+
+    @Test
+    void scalesOutAheadOfTheSchedule() {
+        final var cron = CronExpression.parse("0 1 * * *", ZoneOffset.UTC);
+        final var scheduled = new ScalingPolicy(List.of(CKULimits.RECEIVED_BYTES, CKULimits.CLUSTER_LOAD_PERCENT), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 5, 2)
+                .evaluationPeriods(3)
+                .forecast(false, 15, 30 * MINUTE)
+                .schedules(List.of(new Schedule("batch", cron, 120 * MINUTE, 4)));
+        final var evaluation = new Evaluation(scheduled);
+        final var low = windows(new double[]{0.1, 0.1, 0.1}, new double[]{0.1, 0.1, 0.1});
+
+        scheduled.evaluate(1, low, scheduled.newAggregators(), new ScalingState(), 20 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+
+        // 30 minutes of provisioning ahead of 01:00
+        scheduled.evaluate(1, low, scheduled.newAggregators(), new ScalingState(), 40 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.EXPAND);
+        assertThat(evaluation.targetCKU()).isEqualTo(4);
+        assertThat(evaluation.reason()).isEqualTo("schedule batch needs 4 CKU");
+
+        scheduled.evaluate(4, low, scheduled.newAggregators(), new ScalingState(), 150 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+        assertThat(evaluation.reason()).isEqualTo("all metrics at most 10% below 20%, but schedule batch needs 4 CKU");
+
+        scheduled.evaluate(4, low, scheduled.newAggregators(), new ScalingState(), 190 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.SHRINK);
+    }
+
+    @Test
+    void holdsDuringTheCooldown() {
+        final var windows = windows(new double[]{0.3, 0.3, 0.3}, new double[]{0.9, 0.95, 1.2});
+        final var evaluation = new Evaluation(policy);
+        final var state = new ScalingState();
+        state.onAction(EXPAND, 2, false, 8 * MINUTE);
+
+        policy.evaluate(1, windows, policy.newAggregators(), state, 10 * MINUTE, evaluation);
+
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+        assertThat(evaluation.constraint()).isEqualTo(Evaluation.Constraint.SCALE_OUT_COOLDOWN);
+        assertThat(evaluation.targetCKU()).isEqualTo(1);
+    }
+
+    @Test
+    void shrinksOnlyIfAllMetricsAreBelowTheLowerBound() {
+        final var evaluation = new Evaluation(policy);
+
+        policy.evaluate(4, windows(new double[]{0.1, 0.1, 0.1}, new double[]{0.3, 0.1, 0.1}), policy.newAggregators(),
+                new ScalingState(), 10 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.HOLD);
+        assertThat(evaluation.reason()).isEqualTo("within bounds");
+
+        policy.evaluate(4, windows(new double[]{0.1, 0.1, 0.1}, new double[]{0.15, 0.1, 0.1}), policy.newAggregators(),
+                new ScalingState(), 10 * MINUTE, evaluation);
+        assertThat(evaluation.decision()).isEqualTo(Evaluation.Decision.SHRINK);
+        assertThat(evaluation.targetCKU()).isEqualTo(2);
+        assertThat(evaluation.reason()).isEqualTo("all metrics at most 15% below 20%");
+    }
+
+    /**
+     * @param received the received bytes in the fraction of 1 CKU
+     */
+    private static MetricWindow[] windows(double[] received, double[] load) {
+        final var bytes = new MetricWindow(3, "PT1M");
+        final var percent = new MetricWindow(3, "PT1M");
+        for (int i = 0; i < received.length; i++) {
+            bytes.add(i * MINUTE, received[i] * CKULimits.RECEIVED_BYTES_LIMIT * 60);
+            percent.add(i * MINUTE, load[i]);
+        }
+        return new MetricWindow[]{bytes, percent};
+    }
+}
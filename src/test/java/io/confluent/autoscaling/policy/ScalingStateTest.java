@@ -0,0 +1,46 @@
+package io.confluent.autoscaling.policy;
+
+import org.junit.jupiter.api.Test;
+
+import static io.confluent.autoscaling.policy.ScalingState.Action.EXPAND;
+import static io.confluent.autoscaling.policy.ScalingState.Action.SHRINK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScalingStateTest {
+
+    @Test
+    void backsOffWhileResizingAndCoolsDownAfterwards() {
+        final var state = new ScalingState();
+        assertThat(state.inCooldown(SHRINK, 100, 1000, 0)).isFalse();
+
+        state.onAction(EXPAND, 3, true, 0);
+        assertThat(state.onResizeInProgress(10, 50, 150)).isEqualTo(50);
+        assertThat(state.isReadDue(59)).isFalse();
+        assertThat(state.onResizeInProgress(60, 50, 150)).isEqualTo(100);
+        assertThat(state.onResizeInProgress(160, 50, 150)).isEqualTo(150);
+
+        state.onResizeCompleted(5000);
+        assertThat(state.isResizing()).isFalse();
+        assertThat(state.isReadDue(5000)).isTrue();
+        assertThat(state.inCooldown(EXPAND, 100, 1000, 5099)).isTrue();
+        assertThat(state.inCooldown(EXPAND, 100, 1000, 5100)).isFalse();
+        assertThat(state.inCooldown(SHRINK, 100, 1000, 5100)).isTrue();
+    }
+
+    @Test
+    void restoresFromTheOffset() {
+        final var state = new ScalingState();
+        state.onAction(SHRINK, 2, true, 1234);
+
+        final var offset = state.toOffset();
+        offset.put("action.time", 1234); // the JSON offset store reads small numbers back as integers
+
+        final var restored = new ScalingState();
+        restored.restore(offset);
+
+        assertThat(restored.lastAction()).isEqualTo(SHRINK);
+        assertThat(restored.lastActionTime()).isEqualTo(1234);
+        assertThat(restored.targetCKU()).isEqualTo(2);
+        assertThat(restored.isResizing()).isTrue();
+    }
+}
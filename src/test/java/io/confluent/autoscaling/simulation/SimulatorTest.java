@@ -0,0 +1,65 @@
+package io.confluent.autoscaling.simulation;
+
+import io.confluent.autoscaling.cloud.CKULimits;
+import io.confluent.autoscaling.policy.Evaluation;
+import io.confluent.autoscaling.policy.ScalingPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimulatorTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final double RECEIVED_BYTES_PER_CKU = CKULimits.RECEIVED_BYTES_LIMIT * 60.0;
+
+    private static ScalingPolicy policy(String... metrics) {
+        return new ScalingPolicy(List.of(metrics), "PT1M")
+                .thresholds(20, 50, 35)
+                .size(1, 4, 1)
+                .evaluationPeriods(3)
+                .forecast(false, 15, 30 * MINUTE)
+                .cooldowns(5 * MINUTE, 15 * MINUTE);
+    }
+
+    @Test
+    void scalesOutAndInWithTheProvisioningDelay() {
+        final var simulator = new Simulator(policy(CKULimits.RECEIVED_BYTES), "PT1M", 1);
+        final var values = new double[1];
+        for (int minute = 0; minute < 600; minute++) {
+            final var load = minute < 60 ? 0.3 : minute < 420 ? 1.2 : 0.1;
+            values[0] = load * RECEIVED_BYTES_PER_CKU;
+            simulator.replay(minute * MINUTE, 1, values);
+        }
+
+        final var report = simulator.report();
+        assertThat(report.actions()).extracting(SimulationReport.Action::decision).containsExactly(
+                Evaluation.Decision.EXPAND, Evaluation.Decision.EXPAND,
+                Evaluation.Decision.SHRINK, Evaluation.Decision.SHRINK);
+        assertThat(report.actions().get(0).timestamp()).isEqualTo(63 * MINUTE);
+        // over capacity from the 60th minute until the first expansion completes 30 minutes after the decision
+        assertThat(report.overCapacityMs()).isEqualTo(33 * MINUTE);
+        assertThat(report.ckuHours()).isCloseTo(1330 / 60.0, within(1e-9));
+        assertThat(report.finalCKU()).isEqualTo(1);
+    }
+
+    @Test
+    void rescalesTheLoadToTheSimulatedSize() throws IOException {
+        final var csv = "timestamp,cluster_load_percent,cku\n"
+                + "2022-04-21T15:10:00Z,0.9,2\n"
+                + "2022-04-21T15:11:00Z,0.9,2\n"
+                + "1650553920000,0.9,2\n";
+
+        final var report = new Simulator(policy(CKULimits.CLUSTER_LOAD_PERCENT), "PT1M", 1)
+                .replay(new StringReader(csv));
+
+        assertThat(report.buckets()).isEqualTo(3);
+        assertThat(report.overCapacityMs()).isEqualTo(3 * MINUTE); // 90% of 2 CKU is 180% of 1 CKU
+        assertThat(report.actions()).hasSize(1);
+        assertThat(report.actions().get(0).toCKU()).isEqualTo(2);
+    }
+}